@@ -0,0 +1,184 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Parallel background count of the reachable instances and their shallow sizes by runtime class.
+ *
+ * @author Akritas Akritidis
+ */
+final class ClassHistogram extends GraphWalker<Object> {
+
+    /** The counts of a class. */
+    public static final class Entry {
+
+        public final Class<?> clas;
+
+        private long count;
+        private long bytes;
+        private final ArrayList<Object> instances = new ArrayList<Object>();
+
+        private Entry(Class<?> clas) {
+            this.clas = clas;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the first instances found, at most {@link ClassHistogram#MaxInstances}
+         */
+        public synchronized List<Object> getInstances() {
+            return new ArrayList<Object>(instances);
+        }
+
+        private synchronized void add(Counter counter) {
+            count += counter.count;
+            bytes += counter.bytes;
+
+            final int n = Math.min(counter.instances.size(), MaxInstances - instances.size());
+            if (n > 0) instances.addAll(counter.instances.subList(0, n));
+        }
+    }
+
+    /** The counts of a class not yet added to the shared entries. */
+    private static final class Counter {
+
+        long count;
+        long bytes;
+        final ArrayList<Object> instances = new ArrayList<Object>();
+    }
+
+    public static final int DefaultMaxVisited = 100000000;
+
+    /** The maximum number of instances kept per class. */
+    public static final int MaxInstances = 1000;
+
+    /** The number of visited objects after which a worker adds its counts to the shared entries. */
+    private static final int MergeSize = 4096;
+
+    private final Object root;
+
+    private final ConcurrentHashMap<Class<?>, Entry> entries = new ConcurrentHashMap<Class<?>, Entry>();
+
+    public ClassHistogram(Object root) {
+        this(root, DefaultMaxVisited);
+    }
+
+    public ClassHistogram(Object root, int maxVisited) {
+        super(maxVisited);
+        this.root = root;
+    }
+
+    /**
+     * Starts the count on a background thread.
+     */
+    public void start() {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ClassHistogram.this.run();
+            }
+        }, "ObjectEditor histogram");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Counts on the calling thread, until finished or canceled.
+     */
+    public void run() {
+        firstVisit(root);
+
+        final Walk first = new Walk();
+        first.count(root);
+        first.push(root);
+        walk(first);
+    }
+
+    /**
+     * @return the current entries, in no order
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<Entry>(entries.values()));
+    }
+
+    private static boolean isLeaf(Class<?> c) {
+        return c.isArray() && c.getComponentType().isPrimitive();
+    }
+
+    @Override
+    protected Worker newWorker() {
+        return new Walk();
+    }
+
+    @SuppressWarnings("serial")
+    private final class Walk extends Worker {
+
+        private final HashMap<Class<?>, Counter> counters = new HashMap<Class<?>, Counter>();
+        private int pending;
+
+        @Override
+        protected void walk(Object object) {
+            ObjectGraph.forEachChild(object, false, this);
+        }
+
+        @Override
+        protected void walked(boolean done) {
+            if (done || pending > MergeSize) merge();
+        }
+
+        @Override
+        public void visit(Field field, int index, Class<?> clas, Object value) {
+            if (value == null || clas.isPrimitive()) return;
+
+            if (firstVisit(value)) {
+                count(value);
+                if (!isLeaf(clas)) push(value);
+            }
+        }
+
+        private void count(Object object) {
+            final Class<?> c = object.getClass();
+
+            Counter counter = counters.get(c);
+            if (counter == null) {
+                counter = new Counter();
+                counters.put(c, counter);
+            }
+            counter.count++;
+            counter.bytes += ClassInfo.sizeOf(object);
+            if (counter.instances.size() < MaxInstances) counter.instances.add(object);
+
+            pending++;
+        }
+
+        private void merge() {
+            for (final Map.Entry<Class<?>, Counter> i : counters.entrySet()) {
+                Entry entry = entries.get(i.getKey());
+                if (entry == null) {
+                    final Entry created = new Entry(i.getKey());
+                    entry = entries.putIfAbsent(i.getKey(), created);
+                    if (entry == null) entry = created;
+                }
+                entry.add(i.getValue());
+            }
+            counters.clear();
+            pending = 0;
+        }
+    }
+
+}
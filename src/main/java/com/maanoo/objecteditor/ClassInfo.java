@@ -1,12 +1,14 @@
 // Copyright (c) 2020 Akritas Akritidis, see LICENSE.
 package com.maanoo.objecteditor;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -16,16 +18,26 @@ import java.util.HashMap;
  */
 public class ClassInfo {
 
-    private static final HashMap<Class<?>, ClassInfo> classInfos = new HashMap<Class<?>, ClassInfo>();
+    private static final ConcurrentHashMap<Class<?>, ClassInfo> classInfos = new ConcurrentHashMap<Class<?>, ClassInfo>();
 
+    /**
+     * Thread safe, concurrent callers may load the same class twice but the same info is always returned.
+     */
     public static ClassInfo of(Class<?> c) {
         {
             final ClassInfo info = classInfos.get(c);
             if (info != null) return info;
         }
         final ClassInfo info = new ClassInfo(c);
-        classInfos.put(c, info);
-        return info;
+        final ClassInfo previous = classInfos.putIfAbsent(c, info);
+        return previous != null ? previous : info;
+    }
+
+    /**
+     * @return whether the info of the class is already loaded
+     */
+    static boolean isLoaded(Class<?> c) {
+        return classInfos.containsKey(c);
     }
 
     // ===
@@ -35,6 +47,10 @@ public class ClassInfo {
     private final ArrayList<Field> fields;
     private final ArrayList<MethodInfo> methods;
 
+    /** The sum of the sizes of the fields, including the ones not usable. */
+    private int fieldsSize;
+    private final int instanceSize;
+
     private ClassInfo(Class<?> c) {
         this.c = c;
 
@@ -42,6 +58,8 @@ public class ClassInfo {
         methods = new ArrayList<MethodInfo>();
 
         load(c);
+
+        instanceSize = align(HeaderSize + fieldsSize);
     }
 
     private void load(Class<?> c) {
@@ -49,14 +67,17 @@ public class ClassInfo {
 
         for (final Field field : c.getDeclaredFields()) {
             if (Modifier.isStatic(field.getModifiers())) continue;
-            field.setAccessible(true);
+            fieldsSize += sizeOfType(field.getType());
+
+            // the fields of the packages not opened to this module are left out instead of failing the class
+            if (!MemberAccess.open(field)) continue;
 
             fields.add(field);
         }
 
         for (final Method method : c.getDeclaredMethods()) {
             if (Modifier.isStatic(method.getModifiers())) continue;
-            method.setAccessible(true);
+            if (!MemberAccess.open(method)) continue;
 
             if (containsOverloadOf(method)) continue;
 
@@ -97,10 +118,73 @@ public class ClassInfo {
         return fields;
     }
 
+    public int getFieldCount() {
+        return fields.size();
+    }
+
+    /**
+     * @return the first field with the name, searching from the class to its superclasses, or null
+     */
+    public Field getField(String name) {
+        for (final Field field : fields) {
+            if (field.getName().equals(name)) return field;
+        }
+        return null;
+    }
+
     public Iterable<MethodInfo> getMethods() {
         return methods;
     }
 
+    /**
+     * @return the estimated size of an instance in bytes, not counting the referenced objects
+     */
+    public int getInstanceSize() {
+        return instanceSize;
+    }
+
+    // === Sizes
+
+    // estimates for a 64 bit virtual machine with compressed references, field packing is ignored
+
+    private static final int HeaderSize = 12;
+    private static final int ArrayHeaderSize = 16;
+    private static final int ReferenceSize = 4;
+    private static final int Alignment = 8;
+
+    /**
+     * @return the estimated size of the object in bytes, not counting the referenced objects
+     */
+    public static long sizeOf(Object object) {
+        final Class<?> c = object.getClass();
+
+        if (c.isArray()) return sizeOfArray(c.getComponentType(), Array.getLength(object));
+        return of(c).instanceSize;
+    }
+
+    /**
+     * @return the estimated size of an array of the component type and the length in bytes
+     */
+    public static long sizeOfArray(Class<?> componentType, int length) {
+        return align(ArrayHeaderSize + (long) length * sizeOfType(componentType));
+    }
+
+    private static int sizeOfType(Class<?> type) {
+        if (!type.isPrimitive()) return ReferenceSize;
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        return 1;
+    }
+
+    private static int align(int size) {
+        return (size + Alignment - 1) & -Alignment;
+    }
+
+    private static long align(long size) {
+        return (size + Alignment - 1) & -Alignment;
+    }
+
     // ===
 
     public static final HashMap<String, Class<?>> PrimitivesNameMap = new HashMap<String, Class<?>>();
@@ -152,6 +236,13 @@ public class ClassInfo {
         }
 
         public Object invoke(Object object, ParameterProvider paramProvider) throws Exception {
+            return call(object, paramProvider).getResult();
+        }
+
+        /**
+         * Invokes the method measuring only the call itself, not the providing of the parameters.
+         */
+        public Invocation call(Object object, ParameterProvider paramProvider) throws Exception {
 
             final Object[] params = new Object[method.getParameterCount()];
 
@@ -162,10 +253,11 @@ public class ClassInfo {
                 params[index++] = param;
             }
 
+            final Invocation.Meter meter = new Invocation.Meter();
             try {
-                return method.invoke(object, params);
+                return meter.stop(method.invoke(object, params), null);
             } catch (final Throwable ex) {
-                return ex;
+                return meter.stop(null, ex);
             }
         }
 
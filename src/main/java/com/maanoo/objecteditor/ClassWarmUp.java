@@ -0,0 +1,220 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+
+/**
+ * Fills the {@link ClassInfo} cache in background threads, from classes and the declared types of their fields.
+ *
+ * @author Akritas Akritidis
+ */
+final class ClassWarmUp {
+
+    private ClassWarmUp() {}
+
+    /** The maximum number of classes loaded by all the warm ups. */
+    public static final int MaxClasses = 20000;
+
+    private static final Set<Class<?>> warmed = Collections
+            .newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+    private static volatile boolean enabled = Boolean.getBoolean("objecteditor.warmup");
+
+    private static ForkJoinPool pool;
+
+    /**
+     * @param enabled whether each new window starts a warm up from the class of its object
+     */
+    public static void setEnabled(boolean enabled) {
+        ClassWarmUp.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    private static synchronized ForkJoinPool pool() {
+        if (pool == null) pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        return pool;
+    }
+
+    /**
+     * Starts loading the infos of the classes and of the declared field types reachable from them.
+     */
+    public static ForkJoinTask<?> start(Collection<Class<?>> classes) {
+        final ArrayList<Class<?>> list = new ArrayList<Class<?>>(classes);
+
+        return pool().submit(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                warmAll(list);
+            }
+        });
+    }
+
+    /**
+     * Starts loading the infos of the named classes and of all the classes of the named packages, including their
+     * sub packages, as {@link #start(Collection)}.
+     */
+    public static ForkJoinTask<?> start(final String... names) {
+        return pool().submit(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                final ArrayList<Class<?>> classes = new ArrayList<Class<?>>();
+                for (final String name : names) {
+                    classes.addAll(resolve(name));
+                }
+                warmAll(classes);
+            }
+        });
+    }
+
+    private static void warmAll(List<Class<?>> classes) {
+        final ArrayList<Warm> tasks = new ArrayList<Warm>();
+        for (final Class<?> c : classes) {
+            tasks.add(new Warm(c));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Warm extends RecursiveAction {
+
+        private final Class<?> c;
+
+        public Warm(Class<?> c) {
+            this.c = c;
+        }
+
+        @Override
+        protected void compute() {
+            if (warmed.size() >= MaxClasses || !warmed.add(c)) return;
+
+            final ClassInfo info;
+            try {
+                info = ClassInfo.of(c);
+            } catch (final RuntimeException e) {
+                return; // inaccessible class
+            } catch (final LinkageError e) {
+                return; // missing dependency
+            }
+
+            final ArrayList<Warm> tasks = new ArrayList<Warm>();
+            for (final Field field : info.getFields()) {
+                Class<?> type = field.getType();
+                while (type.isArray()) {
+                    type = type.getComponentType();
+                }
+                if (!type.isPrimitive() && !warmed.contains(type)) tasks.add(new Warm(type));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    // === Names
+
+    private static ClassLoader loader() {
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader != null ? loader : ClassWarmUp.class.getClassLoader();
+    }
+
+    /**
+     * @return the class of the name, or else the classes of the package of the name and its sub packages
+     */
+    static List<Class<?>> resolve(String name) {
+        final ClassLoader loader = loader();
+        try {
+            return Collections.<Class<?>> singletonList(Class.forName(name, false, loader));
+        } catch (final ClassNotFoundException e) {
+            // a package
+        } catch (final LinkageError e) {
+            return Collections.emptyList();
+        }
+
+        final ArrayList<String> classNames = new ArrayList<String>();
+        final String path = name.replace('.', '/');
+        try {
+            final Enumeration<URL> urls = loader.getResources(path);
+            while (urls.hasMoreElements()) {
+                final URL url = urls.nextElement();
+
+                if (url.getProtocol().equals("file")) {
+                    listDirectory(new File(url.toURI()), name, classNames);
+
+                } else if (url.getProtocol().equals("jar")) {
+                    final JarFile jar = ((JarURLConnection) url.openConnection()).getJarFile();
+                    listJar(jar, path + "/", classNames);
+                }
+            }
+        } catch (final IOException e) {
+            e.printStackTrace();
+        } catch (final URISyntaxException e) {
+            e.printStackTrace();
+        }
+
+        final ArrayList<Class<?>> classes = new ArrayList<Class<?>>();
+        for (final String className : classNames) {
+            try {
+                classes.add(Class.forName(className, false, loader));
+            } catch (final ClassNotFoundException e) {
+                // listed but not loadable
+            } catch (final LinkageError e) {
+                // missing dependency
+            }
+        }
+        return classes;
+    }
+
+    private static void listDirectory(File directory, String packageName, List<String> classNames) {
+        final File[] files = directory.listFiles();
+        if (files == null) return;
+
+        for (final File file : files) {
+            final String name = file.getName();
+
+            if (file.isDirectory()) {
+                listDirectory(file, packageName + "." + name, classNames);
+            } else if (isClassFile(name)) {
+                classNames.add(packageName + "." + name.substring(0, name.length() - ".class".length()));
+            }
+        }
+    }
+
+    private static void listJar(JarFile jar, String prefix, List<String> classNames) {
+        final Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            final String name = entries.nextElement().getName();
+
+            if (name.startsWith(prefix) && isClassFile(name)) {
+                classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+            }
+        }
+    }
+
+    private static boolean isClassFile(String name) {
+        return name.endsWith(".class") && !name.endsWith("package-info.class") && !name.endsWith("module-info.class");
+    }
+
+}
@@ -0,0 +1,104 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Identity based add only set safe for concurrent use, striped into independently locked open addressing tables.
+ *
+ * @author Akritas Akritidis
+ */
+final class ConcurrentIdentitySet {
+
+    private static final int StripeBits = 6;
+
+    private final Stripe[] stripes;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public ConcurrentIdentitySet() {
+        stripes = new Stripe[1 << StripeBits];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @return true if the object was not already contained
+     */
+    public boolean add(Object object) {
+        final int h = System.identityHashCode(object) * 0x9E3779B9;
+        final Stripe stripe = stripes[h >>> (32 - StripeBits)];
+
+        final boolean added;
+        synchronized (stripe) {
+            added = stripe.add(object, h);
+        }
+        if (added) size.incrementAndGet();
+        return added;
+    }
+
+    public boolean contains(Object object) {
+        final int h = System.identityHashCode(object) * 0x9E3779B9;
+        final Stripe stripe = stripes[h >>> (32 - StripeBits)];
+
+        synchronized (stripe) {
+            return stripe.contains(object, h);
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private static final class Stripe {
+
+        private Object[] keys = new Object[64];
+        private int size;
+
+        public boolean contains(Object object, int h) {
+            final Object[] keys = this.keys;
+            final int mask = keys.length - 1;
+
+            for (int i = h & mask;; i = (i + 1) & mask) {
+                final Object k = keys[i];
+                if (k == object) return true;
+                if (k == null) return false;
+            }
+        }
+
+        public boolean add(Object object, int h) {
+            final Object[] keys = this.keys;
+            final int mask = keys.length - 1;
+
+            int i = h & mask;
+            for (;; i = (i + 1) & mask) {
+                final Object k = keys[i];
+                if (k == object) return false;
+                if (k == null) break;
+            }
+            keys[i] = object;
+
+            if (++size > keys.length >> 1) resize();
+            return true;
+        }
+
+        private void resize() {
+            final Object[] old = keys;
+            final Object[] keys = new Object[old.length << 1];
+            final int mask = keys.length - 1;
+
+            for (final Object k : old) {
+                if (k == null) continue;
+
+                int i = (System.identityHashCode(k) * 0x9E3779B9) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = k;
+            }
+            this.keys = keys;
+        }
+    }
+
+}
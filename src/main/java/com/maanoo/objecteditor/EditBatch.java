@@ -0,0 +1,257 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+
+/**
+ * Field and element edits staged to be applied together, in one short critical section.
+ *
+ * @author Akritas Akritidis
+ */
+final class EditBatch {
+
+    /** The time to wait for the lock in milliseconds, after which nothing is applied. */
+    public static final long LockTimeout = 1000;
+
+    private static final HashMap<Class<?>, Class<?>> Boxes = new HashMap<Class<?>, Class<?>>();
+    static {
+        Boxes.put(boolean.class, Boolean.class);
+        Boxes.put(byte.class, Byte.class);
+        Boxes.put(char.class, Character.class);
+        Boxes.put(short.class, Short.class);
+        Boxes.put(int.class, Integer.class);
+        Boxes.put(long.class, Long.class);
+        Boxes.put(float.class, Float.class);
+        Boxes.put(double.class, Double.class);
+    }
+
+    /** The new value of a field or of an array element. */
+    public static final class Edit {
+
+        public final Object holder;
+        /** The field or null for an array element. */
+        public final Field field;
+        public final int index;
+
+        public final Object value;
+
+        private Edit(Object holder, Field field, int index, Object value) {
+            this.holder = holder;
+            this.field = field;
+            this.index = index;
+            this.value = value;
+        }
+
+        public boolean isOf(Object holder, Field field, int index) {
+            return this.holder == holder && (field != null ? field.equals(this.field) : this.index == index);
+        }
+
+        /**
+         * @return the type the value is stored as
+         */
+        public Class<?> getType() {
+            return field != null ? field.getType() : holder.getClass().getComponentType();
+        }
+
+        /**
+         * @return the reason the value cannot be stored or null
+         */
+        public String validate() {
+            if (field != null && Modifier.isStatic(field.getModifiers()) && Modifier.isFinal(field.getModifiers())) {
+                return "static final field";
+            }
+            if (field != null && !isWritable(field)) {
+                return "field not writable";
+            }
+            if (field == null && (index < 0 || index >= Array.getLength(holder))) {
+                return "index out of bounds";
+            }
+
+            final Class<?> type = getType();
+            if (type.isPrimitive()) {
+                if (value == null) return "null to " + type.getName();
+                if (Boxes.get(type) != value.getClass()) {
+                    return value.getClass().getSimpleName() + " to " + type.getName();
+                }
+            } else if (value != null && !type.isInstance(value)) {
+                return value.getClass().getSimpleName() + " to " + type.getSimpleName();
+            }
+            return null;
+        }
+
+        // canAccess is only on Java 9 and later
+        @SuppressWarnings("deprecation")
+        private static boolean isWritable(Field field) {
+            if (!MemberAccess.open(field)) return false;
+            return !Modifier.isFinal(field.getModifiers()) || field.isAccessible();
+        }
+
+        private void apply() throws IllegalAccessException {
+            if (field != null) {
+                field.set(holder, value);
+            } else {
+                Array.set(holder, index, value);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return (field != null ? field.getName() : "[" + index + "]") + " := " + value;
+        }
+    }
+
+    private final ArrayList<Edit> edits = new ArrayList<Edit>();
+
+    /**
+     * Stages a new value for a field or an array element, replacing any value already staged for it.
+     *
+     * @param field the field or null for the element at the index of an array
+     */
+    public void stage(Object holder, Field field, int index, Object value) {
+        final Edit edit = new Edit(holder, field, index, value);
+
+        for (int i = 0; i < edits.size(); i++) {
+            if (edits.get(i).isOf(holder, field, index)) {
+                edits.set(i, edit);
+                return;
+            }
+        }
+        edits.add(edit);
+    }
+
+    /**
+     * @return the staged edit of the field or the array element or null
+     */
+    public Edit get(Object holder, Field field, int index) {
+        for (final Edit edit : edits) {
+            if (edit.isOf(holder, field, index)) return edit;
+        }
+        return null;
+    }
+
+    public List<Edit> getEdits() {
+        return Collections.unmodifiableList(edits);
+    }
+
+    public int size() {
+        return edits.size();
+    }
+
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    public void clear() {
+        edits.clear();
+    }
+
+    /**
+     * @return a description of each edit that cannot be applied, empty if all can
+     */
+    public List<String> validate() {
+        final ArrayList<String> problems = new ArrayList<String>();
+        for (final Edit edit : edits) {
+            final String problem = edit.validate();
+            if (problem != null) problems.add(edit + " : " + problem);
+        }
+        return problems;
+    }
+
+    /**
+     * Applies all the edits, holding the lock if given, then clears the batch. The values are validated before
+     * entering the critical section, so nothing is applied if any is invalid.
+     * <p>
+     * If an edit cannot be written, the ones before it are applied and removed from the batch, it and the ones after
+     * it stay staged.
+     *
+     * @param lock a {@link Lock} to lock, any other object to synchronize on, or null
+     * @throws IllegalArgumentException if an edit is invalid
+     * @throws TimeoutException if the lock is not acquired within {@link #LockTimeout}, nothing is applied
+     */
+    public void apply(Object lock) throws IllegalAccessException, TimeoutException, InterruptedException {
+        apply(lock, LockTimeout);
+    }
+
+    void apply(Object lock, long timeout) throws IllegalAccessException, TimeoutException, InterruptedException {
+        final List<String> problems = validate();
+        if (!problems.isEmpty()) throw new IllegalArgumentException(problems.get(0));
+
+        if (lock instanceof Lock) {
+            if (!((Lock) lock).tryLock(timeout, TimeUnit.MILLISECONDS)) throw new TimeoutException();
+            try {
+                applyAll();
+            } finally {
+                ((Lock) lock).unlock();
+            }
+        } else if (lock != null) {
+            applySynchronized(lock, timeout);
+        } else {
+            applyAll();
+        }
+    }
+
+    private static final int Waiting = 0, Applying = 1, Abandoned = 2;
+
+    /**
+     * Synchronizes on the lock on a helper thread, which the calling thread waits for at most the timeout. Once
+     * abandoned, the helper thread exits without applying whenever it gets the lock.
+     */
+    private void applySynchronized(final Object lock, long timeout)
+            throws IllegalAccessException, TimeoutException, InterruptedException {
+        final AtomicInteger state = new AtomicInteger(Waiting);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Exception[] failure = new Exception[1];
+
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    if (!state.compareAndSet(Waiting, Applying)) return;
+                    try {
+                        applyAll();
+                    } catch (final Exception e) {
+                        failure[0] = e;
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }
+        }, "ObjectEditor edit lock");
+        thread.setDaemon(true);
+        thread.start();
+
+        if (!done.await(timeout, TimeUnit.MILLISECONDS) && state.compareAndSet(Waiting, Abandoned)) {
+            throw new TimeoutException();
+        }
+        // applying, not for long
+        done.await();
+
+        if (failure[0] instanceof IllegalAccessException) throw (IllegalAccessException) failure[0];
+        if (failure[0] != null) throw (RuntimeException) failure[0];
+    }
+
+    private void applyAll() throws IllegalAccessException {
+        for (int i = 0; i < edits.size(); i++) {
+            try {
+                edits.get(i).apply();
+            } catch (final IllegalAccessException e) {
+                edits.subList(0, i).clear();
+                throw e;
+            }
+        }
+        edits.clear();
+    }
+
+}
@@ -0,0 +1,107 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.util.ArrayDeque;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+import com.maanoo.objecteditor.ObjectEditorWindow.HolderNode;
+
+
+/**
+ * The estimated memory held by the nodes of a window: the shallow sizes of the nodes and of the objects they keep
+ * alive, each object counted once.
+ *
+ * @author Akritas Akritidis
+ */
+final class Footprint {
+
+    public static final Footprint None = new Footprint(0, 0, 0, 0, 0);
+
+    public final int nodes;
+    public final long nodeBytes;
+
+    /** The objects held strongly. */
+    public final int objects;
+    public final long objectBytes;
+
+    /** The nodes whose objects are collected and not yet pruned. */
+    public final int collected;
+
+    private Footprint(int nodes, long nodeBytes, int objects, long objectBytes, int collected) {
+        this.nodes = nodes;
+        this.nodeBytes = nodeBytes;
+        this.objects = objects;
+        this.objectBytes = objectBytes;
+        this.collected = collected;
+    }
+
+    /**
+     * Measures the nodes under the root, not descending into the linked nodes whose children are counted once.
+     */
+    public static Footprint of(Tree.Node root) {
+        final IdentityMap<Boolean> held = new IdentityMap<Boolean>();
+
+        int nodes = 0, objects = 0, collected = 0;
+        long nodeBytes = 0, objectBytes = 0;
+
+        final ArrayDeque<Tree.Node> stack = new ArrayDeque<Tree.Node>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            final Tree.Node node = stack.pop();
+
+            nodes += 1;
+            nodeBytes += ClassInfo.sizeOf(node);
+
+            Object holder = null, object = null;
+            if (node instanceof GenericNode) {
+                final GenericNode gnode = (GenericNode) node;
+
+                if (gnode.isCollected()) collected += 1;
+                if (!gnode.isWeak()) holder = gnode.getHolder();
+                // the values of primitive types are held by the node only
+                if (!gnode.isWeak() || gnode.clas.isPrimitive()) object = gnode.getObject();
+
+            } else if (node instanceof HolderNode) {
+                final HolderNode hnode = (HolderNode) node;
+
+                if (!hnode.isWeak()) holder = hnode.getHolder();
+            }
+
+            if (holder != null && held.put(holder, Boolean.TRUE) == null) {
+                objects += 1;
+                objectBytes += ClassInfo.sizeOf(holder);
+            }
+            if (object != null && held.put(object, Boolean.TRUE) == null) {
+                objects += 1;
+                objectBytes += ClassInfo.sizeOf(object);
+            }
+
+            if (node instanceof ObjectEditorWindow.Node && ((ObjectEditorWindow.Node) node).isLinked()) continue;
+
+            final int count = node.getChildCount();
+            if (count != 0) nodeBytes += ClassInfo.sizeOfArray(Tree.Node.class, count);
+            for (int i = 0; i < count; i++) {
+                stack.push(node.getChildAt(i));
+            }
+        }
+        return new Footprint(nodes, nodeBytes, objects, objectBytes, collected);
+    }
+
+    public Footprint plus(Footprint other) {
+        return new Footprint(nodes + other.nodes, nodeBytes + other.nodeBytes, objects + other.objects,
+                objectBytes + other.objectBytes, collected + other.collected);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(nodes).append(" nodes ").append(Invocation.bytes(nodeBytes));
+        sb.append(", holding ").append(objects).append(" objects ").append(Invocation.bytes(objectBytes));
+        if (collected != 0) sb.append(", ").append(collected).append(" collected");
+
+        return sb.toString();
+    }
+
+}
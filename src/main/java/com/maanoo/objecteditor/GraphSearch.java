@@ -0,0 +1,206 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+
+/**
+ * Parallel background search of the object graph under a root, without generating any tree nodes.
+ *
+ * @author Akritas Akritidis
+ */
+final class GraphSearch extends GraphWalker<ObjectPath> {
+
+    /** A condition over a field or array element. */
+    public interface Matcher {
+
+        boolean matches(Field field, int index, Class<?> clas, Object value);
+
+        /**
+         * @return whether primitive array elements need to be visited
+         */
+        boolean matchesPrimitiveElements();
+    }
+
+    public enum Mode {
+        Name, Value, Type, Identity;
+    }
+
+    /**
+     * @param text the search text, a case insensitive regex for names and values, a class name for types (with an
+     *             optional prefix) or an identity hash code
+     * @return the matcher or null if the text is not valid for the mode
+     */
+    public static Matcher matcher(Mode mode, String text, String classPrefix) {
+        switch (mode) {
+        case Name: {
+            final Pattern pattern = Pattern.compile(text, Pattern.CASE_INSENSITIVE);
+            return new Matcher() {
+                @Override
+                public boolean matches(Field field, int index, Class<?> clas, Object value) {
+                    return field != null && pattern.matcher(field.getName()).find();
+                }
+
+                @Override
+                public boolean matchesPrimitiveElements() {
+                    return false;
+                }
+            };
+        }
+        case Value: {
+            final Pattern pattern = Pattern.compile(text, Pattern.CASE_INSENSITIVE);
+            return new Matcher() {
+                @Override
+                public boolean matches(Field field, int index, Class<?> clas, Object value) {
+                    if (value != null && !ObjectGraph.isValueClass(clas) && !(value instanceof Number)
+                            && !(value instanceof Boolean) && !(value instanceof Character))
+                        return false;
+                    return pattern.matcher(String.valueOf(value)).find();
+                }
+
+                @Override
+                public boolean matchesPrimitiveElements() {
+                    return true;
+                }
+            };
+        }
+        case Type: {
+            final String type = text.startsWith(classPrefix) ? text.substring(classPrefix.length()) : text;
+            Class<?> target;
+            try {
+                target = Class.forName(type);
+            } catch (final ClassNotFoundException e) {
+                target = ClassInfo.PrimitivesNameMap.get(type);
+            }
+            if (target == null) return null;
+
+            final Class<?> c = target;
+            return new Matcher() {
+                @Override
+                public boolean matches(Field field, int index, Class<?> clas, Object value) {
+                    return c.isAssignableFrom(clas);
+                }
+
+                @Override
+                public boolean matchesPrimitiveElements() {
+                    return c.isPrimitive();
+                }
+            };
+        }
+        case Identity: {
+            final String hash = text.substring(text.lastIndexOf('@') + 1).trim();
+            final int identity;
+            try {
+                identity = Integer.parseInt(hash);
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+            return new Matcher() {
+                @Override
+                public boolean matches(Field field, int index, Class<?> clas, Object value) {
+                    return value != null && !clas.isPrimitive() && System.identityHashCode(value) == identity;
+                }
+
+                @Override
+                public boolean matchesPrimitiveElements() {
+                    return false;
+                }
+            };
+        }
+        default:
+            throw new IllegalArgumentException(mode.toString());
+        }
+    }
+
+    // ===
+
+    public static final int DefaultMaxVisited = 20000000;
+    public static final int DefaultMaxResults = 10000;
+
+    private final ObjectPath root;
+    private final Matcher matcher;
+
+    private final int maxResults;
+
+    private final AtomicInteger resultCount = new AtomicInteger();
+    private final ConcurrentLinkedQueue<ObjectPath> results = new ConcurrentLinkedQueue<ObjectPath>();
+
+    public GraphSearch(Object root, Matcher matcher) {
+        this(root, matcher, DefaultMaxVisited, DefaultMaxResults);
+    }
+
+    public GraphSearch(Object root, Matcher matcher, int maxVisited, int maxResults) {
+        super(maxVisited);
+        this.root = ObjectPath.root(root);
+        this.matcher = matcher;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Starts the search on a background thread.
+     */
+    public void start() {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                firstVisit(root.object);
+
+                final Walk first = new Walk();
+                first.push(root);
+                walk(first);
+            }
+        }, "ObjectEditor search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the next found path or null if none is pending
+     */
+    public ObjectPath poll() {
+        return results.poll();
+    }
+
+    public int getResultCount() {
+        return Math.min(resultCount.get(), maxResults);
+    }
+
+    @Override
+    protected Worker newWorker() {
+        return new Walk();
+    }
+
+    @SuppressWarnings("serial")
+    private final class Walk extends Worker {
+
+        private final boolean primitives = matcher.matchesPrimitiveElements();
+
+        private ObjectPath current;
+
+        @Override
+        protected void walk(ObjectPath path) {
+            current = path;
+            ObjectGraph.forEachChild(path.object, primitives || !path.clas.isArray(), this);
+        }
+
+        @Override
+        public void visit(Field field, int index, Class<?> clas, Object value) {
+
+            if (matcher.matches(field, index, clas, value)) {
+                if (resultCount.incrementAndGet() <= maxResults) {
+                    results.add(current.child(field, index, clas, value));
+                } else {
+                    limit();
+                }
+            }
+
+            if (value == null || clas.isPrimitive() || clas == String.class) return;
+
+            if (firstVisit(value)) push(current.child(field, index, clas, value));
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Parallel walk of the object graph, each object visited once, by workers splitting their pending items among the
+ * threads of a pool.
+ *
+ * @param <T> the pending items of the workers
+ * @author Akritas Akritidis
+ */
+abstract class GraphWalker<T> {
+
+    /** The number of pending items after which half of them are given to an other worker. */
+    private static final int SplitSize = 256;
+
+    private final int maxVisited;
+
+    private final ConcurrentIdentitySet visited = new ConcurrentIdentitySet();
+
+    private final ForkJoinPool pool = new ForkJoinPool();
+
+    private volatile boolean canceled;
+    private volatile boolean limited;
+    private volatile boolean finished;
+
+    protected GraphWalker(int maxVisited) {
+        this.maxVisited = maxVisited;
+    }
+
+    /**
+     * Runs the worker and the ones split from it on the calling thread, until finished or canceled.
+     */
+    protected final void walk(Worker first) {
+        try {
+            pool.execute(first);
+
+            while (!pool.awaitQuiescence(100, TimeUnit.MILLISECONDS)) {
+                if (canceled) break;
+            }
+        } finally {
+            pool.shutdownNow();
+            finished = true;
+        }
+    }
+
+    /**
+     * @return whether the object was not visited before, false also once the limit of visited objects is reached
+     */
+    protected final boolean firstVisit(Object object) {
+        if (!visited.add(object)) return false;
+
+        if (visited.size() > maxVisited) {
+            limited = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops the walk early, as when the limit of visited objects is reached.
+     */
+    protected final void limit() {
+        limited = true;
+    }
+
+    protected abstract Worker newWorker();
+
+    public void cancel() {
+        canceled = true;
+    }
+
+    public int getVisitedCount() {
+        return visited.size();
+    }
+
+    /**
+     * @return whether the walk stopped early because of a limit
+     */
+    public boolean isLimited() {
+        return limited;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    // ===
+
+    @SuppressWarnings("serial")
+    protected abstract class Worker extends RecursiveAction implements ObjectGraph.Visitor {
+
+        private final ArrayDeque<T> stack = new ArrayDeque<T>();
+
+        public final void push(T item) {
+            stack.push(item);
+        }
+
+        /**
+         * Visits the children of the item, pushing the ones to walk.
+         */
+        protected abstract void walk(T item);
+
+        /**
+         * Called after each walked item, and once more when the worker is done.
+         */
+        protected void walked(boolean done) {}
+
+        @Override
+        protected final void compute() {
+            while (!stack.isEmpty() && !canceled && !limited) {
+                try {
+                    walk(stack.pop());
+                } catch (final RuntimeException e) {
+                    // unreadable object, skip it
+                }
+
+                if (stack.size() > SplitSize) {
+                    final Worker worker = newWorker();
+                    for (int i = stack.size() / 2; i > 0; i--) {
+                        worker.stack.push(stack.removeLast());
+                    }
+                    // the first worker may be run by the waiting thread, which would fork into the common pool
+                    if (getPool() == pool) {
+                        worker.fork();
+                    } else {
+                        pool.execute(worker);
+                    }
+                }
+
+                walked(false);
+            }
+            walked(true);
+        }
+    }
+
+}
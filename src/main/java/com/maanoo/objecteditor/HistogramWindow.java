@@ -0,0 +1,246 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableRowSorter;
+
+
+/**
+ * Window of the reachable instance counts by class, updated while the background count runs.
+ *
+ * @author Akritas Akritidis
+ */
+@SuppressWarnings("serial")
+final class HistogramWindow {
+
+    /** Shows the instances of a class. */
+    public interface Listener {
+        void show(Class<?> clas, List<Object> instances);
+    }
+
+    private static final int ColumnClass = 0;
+    private static final int ColumnCount = 1;
+    private static final int ColumnBytes = 2;
+
+    private final Listener listener;
+
+    private final JDialog window;
+    private final JTextField filter;
+    private final Model model;
+    private final JTable table;
+    private final TableRowSorter<Model> sorter;
+    private final JLabel status;
+    private final Timer timer;
+
+    private final ClassHistogram histogram;
+
+    private final class Model extends AbstractTableModel {
+
+        private List<ClassHistogram.Entry> entries = Collections.emptyList();
+
+        // the counts are copied, so that the sorting is consistent while the entries change
+        private long[] counts = new long[0];
+        private long[] bytes = new long[0];
+
+        public void update(List<ClassHistogram.Entry> entries) {
+            final long[] counts = new long[entries.size()];
+            final long[] bytes = new long[entries.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = entries.get(i).getCount();
+                bytes[i] = entries.get(i).getBytes();
+            }
+
+            this.entries = entries;
+            this.counts = counts;
+            this.bytes = bytes;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return entries.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 3;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            switch (column) {
+            case ColumnClass:
+                return "Class";
+            case ColumnCount:
+                return "Instances";
+            default:
+                return "Shallow bytes";
+            }
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == ColumnClass ? String.class : Long.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            switch (column) {
+            case ColumnClass:
+                return entries.get(row).clas.getName();
+            case ColumnCount:
+                return counts[row];
+            default:
+                return bytes[row];
+            }
+        }
+    }
+
+    public HistogramWindow(Window owner, Object root, Listener listener) {
+        this.listener = listener;
+
+        filter = new JTextField();
+        filter.setMargin(new Insets(2, 2, 2, 2));
+        filter.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateFilter();
+            }
+        });
+
+        model = new Model();
+        table = new JTable(model);
+
+        sorter = new TableRowSorter<Model>(model);
+        sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(ColumnBytes, SortOrder.DESCENDING)));
+        table.setRowSorter(sorter);
+
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) showSelected();
+            }
+        });
+
+        status = new JLabel(" ");
+
+        histogram = new ClassHistogram(root);
+
+        timer = new Timer(250, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                update();
+            }
+        });
+
+        window = new JDialog(owner, "Class histogram of " + ObjectEditorWindow.toDefaultString(root));
+        window.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();
+                histogram.cancel();
+            }
+        });
+
+        window.setLayout(new BorderLayout());
+        window.add(filter, BorderLayout.NORTH);
+        window.add(new JScrollPane(table), BorderLayout.CENTER);
+        window.add(status, BorderLayout.SOUTH);
+
+        window.setMinimumSize(new Dimension(600, 500));
+
+        histogram.start();
+        timer.start();
+
+        window.setLocationRelativeTo(owner);
+        window.setVisible(true);
+    }
+
+    private void updateFilter() {
+        final String text = filter.getText();
+        if (text.isEmpty()) {
+            sorter.setRowFilter(null);
+            return;
+        }
+
+        try {
+            final Pattern pattern = Pattern.compile(text, Pattern.CASE_INSENSITIVE);
+            sorter.setRowFilter(new RowFilter<Model, Integer>() {
+                @Override
+                public boolean include(Entry<? extends Model, ? extends Integer> entry) {
+                    return pattern.matcher(entry.getStringValue(ColumnClass)).find();
+                }
+            });
+        } catch (final PatternSyntaxException e) {
+            status.setText(e.getDescription());
+        }
+    }
+
+    private void update() {
+        // read before copying, so that no count is missed when the walk just finished
+        final boolean finished = histogram.isFinished();
+
+        final ClassHistogram.Entry selected = getSelected();
+
+        model.update(histogram.getEntries());
+
+        if (selected != null) {
+            final int row = model.entries.indexOf(selected);
+            final int view = row < 0 ? -1 : table.convertRowIndexToView(row);
+            if (view >= 0) table.setRowSelectionInterval(view, view);
+        }
+
+        long count = 0;
+        long bytes = 0;
+        for (int i = 0; i < model.counts.length; i++) {
+            count += model.counts[i];
+            bytes += model.bytes[i];
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append(model.getRowCount()).append(" classes, ");
+        sb.append(count).append(" instances, ").append(bytes).append(" bytes");
+        if (histogram.isLimited()) sb.append(", limit reached");
+        if (!finished) sb.append(", counting...");
+        status.setText(sb.toString());
+
+        if (finished) timer.stop();
+    }
+
+    private ClassHistogram.Entry getSelected() {
+        final int view = table.getSelectedRow();
+        if (view < 0) return null;
+        return model.entries.get(table.convertRowIndexToModel(view));
+    }
+
+    private void showSelected() {
+        final ClassHistogram.Entry entry = getSelected();
+        if (entry != null) listener.show(entry.clas, entry.getInstances());
+    }
+
+}
@@ -0,0 +1,67 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.ref.WeakReference;
+
+
+/**
+ * Map key of an object by identity and an optional discriminator by equality, never calls the object's hashCode or
+ * equals.
+ *
+ * @author Akritas Akritidis
+ */
+final class IdentityKey {
+
+    /** The object, or a weak reference to it if weak. */
+    private final Object object;
+    private final boolean weak;
+
+    public final Object discriminator;
+
+    private final int hash;
+
+    public IdentityKey(Object object, Object discriminator) {
+        this(object, false, discriminator);
+    }
+
+    private IdentityKey(Object object, boolean weak, Object discriminator) {
+        this.object = weak ? new WeakReference<Object>(object) : object;
+        this.weak = weak;
+        this.discriminator = discriminator;
+
+        hash = 31 * System.identityHashCode(object) + (discriminator == null ? 0 : discriminator.hashCode());
+    }
+
+    /**
+     * @return a key that does not keep the object alive and never equals an other key once the object is collected
+     */
+    public static IdentityKey weak(Object object, Object discriminator) {
+        return new IdentityKey(object, true, discriminator);
+    }
+
+    /**
+     * @return the object or null if collected
+     */
+    public Object getObject() {
+        return weak ? ((WeakReference<?>) object).get() : object;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof IdentityKey)) return false;
+        final IdentityKey other = (IdentityKey) obj;
+
+        final Object object = getObject();
+        if (object != other.getObject()) return false;
+        if (object == null && (weak || other.weak)) return false;
+        if (discriminator == null) return other.discriminator == null;
+        return discriminator.equals(other.discriminator);
+    }
+
+}
@@ -0,0 +1,209 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.util.Arrays;
+
+
+/**
+ * Identity keyed open addressing hash map.
+ * <p>
+ * Keys and values are stored in two parallel arrays with linear probing and a low load factor, no entry objects are
+ * allocated. Can be presized from an estimate of the number of entries to avoid rehashing.
+ *
+ * @author Akritas Akritidis
+ */
+class IdentityMap<V> {
+
+    private static final int MinimumCapacity = 16;
+    private static final int MaximumCapacity = 1 << 30;
+
+    /** The maximum ratio of entries to slots. */
+    private static final float LoadFactor = 0.5f;
+
+    private Object[] keys;
+    private Object[] values;
+
+    private int size;
+    private int threshold;
+
+    public IdentityMap() {
+        this(0);
+    }
+
+    /**
+     * @param expected the expected number of entries
+     */
+    public IdentityMap(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    private static int capacityFor(int expected) {
+        final long needed = (long) Math.ceil(expected / LoadFactor);
+
+        int capacity = MinimumCapacity;
+        while (capacity < needed && capacity < MaximumCapacity) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        threshold = (int) (capacity * LoadFactor);
+    }
+
+    private static int hash(Object key, int mask) {
+        final int h = System.identityHashCode(key);
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int indexOf(Object key) {
+        final Object[] keys = this.keys;
+        final int mask = keys.length - 1;
+
+        int i = hash(key, mask);
+        while (true) {
+            final Object k = keys[i];
+            if (k == key) return i;
+            if (k == null) return -1;
+            i = (i + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        final int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    /**
+     * @return the previous value of the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(Object key, V value) {
+        if (key == null) throw new NullPointerException();
+
+        final Object[] keys = this.keys;
+        final int mask = keys.length - 1;
+
+        int i = hash(key, mask);
+        while (true) {
+            final Object k = keys[i];
+            if (k == key) {
+                final V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            if (k == null) break;
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        if (++size > threshold) resize();
+        return null;
+    }
+
+    /**
+     * @return the removed value of the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) return null;
+
+        final Object[] keys = this.keys;
+        final Object[] values = this.values;
+        final int mask = keys.length - 1;
+
+        final V old = (V) values[i];
+        size--;
+
+        // backward shift deletion, keeps the probe sequences intact without tombstones
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            final Object k = keys[j];
+            if (k == null) break;
+
+            final int home = hash(k, mask);
+            if (i <= j ? (i < home && home <= j) : (i < home || home <= j)) continue;
+
+            keys[i] = k;
+            values[i] = values[j];
+            i = j;
+        }
+        keys[i] = null;
+        values[i] = null;
+
+        return old;
+    }
+
+    /**
+     * @return a new array of the keys
+     */
+    public Object[] keys() {
+        final Object[] array = new Object[size];
+
+        int index = 0;
+        for (final Object k : keys) {
+            if (k != null) array[index++] = k;
+        }
+        return array;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void resize() {
+        final Object[] oldKeys = keys;
+        final Object[] oldValues = values;
+        if (oldKeys.length >= MaximumCapacity) {
+            threshold = Integer.MAX_VALUE;
+            return;
+        }
+
+        allocate(oldKeys.length << 1);
+
+        final Object[] keys = this.keys;
+        final Object[] values = this.values;
+        final int mask = keys.length - 1;
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            final Object k = oldKeys[j];
+            if (k == null) continue;
+
+            int i = hash(k, mask);
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = k;
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * @return the number of slots currently allocated
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+}
@@ -0,0 +1,213 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+
+/**
+ * The result and the cost of a method call: the wall time, the CPU time and the allocated bytes of the calling
+ * thread, measured with the thread MXBean counters when supported and enabled. The counters are never enabled here,
+ * since that changes the vm being inspected.
+ *
+ * @author Akritas Akritidis
+ */
+final class Invocation {
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private static final boolean cpuTimeSupported;
+    private static final boolean allocatedSupported;
+    static {
+        boolean cpu;
+        try {
+            cpu = threads.isCurrentThreadCpuTimeSupported();
+        } catch (final UnsupportedOperationException e) {
+            cpu = false;
+        } catch (final SecurityException e) {
+            cpu = false;
+        }
+        cpuTimeSupported = cpu;
+
+        boolean allocated;
+        try {
+            allocated = Allocated.isSupported();
+        } catch (final LinkageError e) {
+            allocated = false; // not a HotSpot based vm
+        }
+        allocatedSupported = allocated;
+    }
+
+    /** Isolates the HotSpot specific interface. */
+    private static final class Allocated {
+
+        static boolean isSupported() {
+            if (!(threads instanceof com.sun.management.ThreadMXBean)) return false;
+
+            final com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            return hotspot.isThreadAllocatedMemorySupported();
+        }
+
+        /**
+         * @return the allocated bytes or -1 if disabled
+         */
+        static long get() {
+            final com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (!hotspot.isThreadAllocatedMemoryEnabled()) return -1;
+
+            return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+
+    private static long cpuTime() {
+        return cpuTimeSupported && threads.isThreadCpuTimeEnabled() ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocated() {
+        return allocatedSupported ? Allocated.get() : -1;
+    }
+
+    /** Measures the calling thread from its creation until {@link #stop}. */
+    public static final class Meter {
+
+        private final long wallStart;
+        private final long cpuStart;
+        private final long allocatedStart;
+
+        public Meter() {
+            allocatedStart = allocated();
+            cpuStart = cpuTime();
+            wallStart = System.nanoTime();
+        }
+
+        /**
+         * @param thrown the throwable thrown by the call or null
+         */
+        public Invocation stop(Object result, Throwable thrown) {
+            final long wall = System.nanoTime() - wallStart;
+            final long cpu = difference(cpuStart, cpuTime());
+            final long allocated = difference(allocatedStart, allocated());
+
+            return new Invocation(result, thrown, wall, cpu, allocated);
+        }
+    }
+
+    /**
+     * @return the difference of the counter values, or -1 if the counter was disabled at either
+     */
+    private static long difference(long start, long end) {
+        return start < 0 || end < 0 ? -1 : end - start;
+    }
+
+    // ===
+
+    private final Object result;
+
+    /** The throwable thrown by the method or null. */
+    public final Throwable thrown;
+
+    /** In nanoseconds. */
+    public final long wallTime;
+    /** In nanoseconds, -1 if not supported or disabled. */
+    public final long cpuTime;
+    /** In bytes, -1 if not supported or disabled. */
+    public final long allocated;
+
+    private Invocation(Object result, Throwable thrown, long wallTime, long cpuTime, long allocated) {
+        this.result = result;
+        this.thrown = thrown;
+        this.wallTime = wallTime;
+        this.cpuTime = cpuTime;
+        this.allocated = allocated;
+    }
+
+    /**
+     * @return the returned value, or else the thrown throwable
+     */
+    public Object getResult() {
+        return thrown != null ? thrown : result;
+    }
+
+    /**
+     * @return the same measurements without the returned value, so that keeping them does not keep the value alive
+     */
+    public Invocation withoutResult() {
+        return result == null ? this : new Invocation(null, thrown, wallTime, cpuTime, allocated);
+    }
+
+    /**
+     * @return the throwable thrown by the method itself, unwrapped from the reflection exception
+     */
+    public Throwable getCause() {
+        if (thrown instanceof InvocationTargetException && thrown.getCause() != null) return thrown.getCause();
+        return thrown;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("wall ").append(time(wallTime));
+        if (cpuTime >= 0) sb.append(", cpu ").append(time(cpuTime));
+        if (allocated >= 0) sb.append(", allocated ").append(bytes(allocated));
+        if (thrown != null) sb.append(", threw ").append(getCause());
+
+        return sb.toString();
+    }
+
+    /**
+     * @return the count, the averages and the maximums of the invocations
+     */
+    public static String summary(List<Invocation> invocations) {
+        final int count = invocations.size();
+        if (count == 0) return "no calls";
+
+        long wall = 0, wallMax = 0, cpu = 0, allocated = 0, allocatedMax = 0;
+        // the counters may be disabled for some of the invocations
+        int cpuCount = 0, allocatedCount = 0, threw = 0;
+        for (final Invocation i : invocations) {
+            wall += i.wallTime;
+            wallMax = Math.max(wallMax, i.wallTime);
+            if (i.cpuTime >= 0) {
+                cpu += i.cpuTime;
+                cpuCount += 1;
+            }
+            if (i.allocated >= 0) {
+                allocated += i.allocated;
+                allocatedMax = Math.max(allocatedMax, i.allocated);
+                allocatedCount += 1;
+            }
+            if (i.thrown != null) threw += 1;
+        }
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(count).append(count == 1 ? " call" : " calls");
+        sb.append(", wall avg ").append(time(wall / count)).append(" max ").append(time(wallMax));
+        if (cpuCount != 0) sb.append(", cpu avg ").append(time(cpu / cpuCount));
+        if (allocatedCount != 0) {
+            sb.append(", allocated avg ").append(bytes(allocated / allocatedCount));
+            sb.append(" max ").append(bytes(allocatedMax));
+        }
+        if (threw != 0) sb.append(", threw ").append(threw);
+
+        return sb.toString();
+    }
+
+    static String time(long nanos) {
+        if (nanos < 1000L) return nanos + " ns";
+        if (nanos < 1000000L) return String.format("%.1f us", nanos / 1e3);
+        if (nanos < 1000000000L) return String.format("%.1f ms", nanos / 1e6);
+        return String.format("%.2f s", nanos / 1e9);
+    }
+
+    static String bytes(long bytes) {
+        if (bytes < 1024L) return bytes + " B";
+        if (bytes < 1024L * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024L * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+}
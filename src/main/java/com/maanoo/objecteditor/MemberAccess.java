@@ -0,0 +1,49 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+
+
+/**
+ * Opens the fields and methods of the classes and reads the fields, by reflection.
+ * <p>
+ * Replaced on Java 17 and later by the version in <code>src/main/java17</code>, packaged under
+ * <code>META-INF/versions/17</code> of the jar, which opens the members without catching an exception for each one
+ * that is not open.
+ *
+ * @author Akritas Akritidis
+ */
+final class MemberAccess {
+
+    private MemberAccess() {}
+
+    /**
+     * Makes the member accessible if allowed, the packages of modules not opened to this one are not.
+     *
+     * @return whether the member can be used, even if not made accessible
+     */
+    public static boolean open(AccessibleObject member) {
+        try {
+            member.setAccessible(true);
+            return true;
+        } catch (final RuntimeException e) {
+            // an InaccessibleObjectException on Java 9 and later, or a SecurityException
+            return isPublic((Member) member);
+        }
+    }
+
+    private static boolean isPublic(Member member) {
+        return Modifier.isPublic(member.getModifiers()) && Modifier.isPublic(member.getDeclaringClass().getModifiers());
+    }
+
+    /**
+     * @param field a field returned as usable by {@link #open}
+     */
+    public static Object get(Field field, Object object) throws IllegalAccessException {
+        return field.get(object);
+    }
+
+}
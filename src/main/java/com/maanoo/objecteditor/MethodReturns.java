@@ -0,0 +1,205 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+
+
+/**
+ * The return nodes and the last calls of the methods, by the identity of their holder and the method, never calling
+ * the hashCode or equals of the holders. The least recently used entries are evicted beyond a count and an estimated
+ * size.
+ *
+ * @author Akritas Akritidis
+ */
+final class MethodReturns {
+
+    public static final int MaxEntries = 1000;
+    /** The maximum sum of the shallow sizes of the returned objects held. */
+    public static final long MaxBytes = 32L << 20;
+
+    private static final class Entry {
+
+        GenericNode node;
+        Invocation invocation;
+        long size;
+    }
+
+    private final LinkedHashMap<IdentityKey, Entry> entries = new LinkedHashMap<IdentityKey, Entry>(16, 0.75f, true);
+
+    /** The number of entries of each method, so that most lookups find none without creating a key. */
+    private final HashMap<Method, Integer> methods = new HashMap<Method, Integer>();
+
+    private long bytes;
+
+    /** Whether some entries keep their holders alive. */
+    private boolean strong;
+
+    private static IdentityKey key(Object holder, Method method, boolean weak) {
+        return weak ? IdentityKey.weak(holder, method) : new IdentityKey(holder, method);
+    }
+
+    private Entry find(Object holder, Method method) {
+        if (holder == null || !methods.containsKey(method)) return null;
+
+        return entries.get(new IdentityKey(holder, method));
+    }
+
+    private Entry entry(Object holder, Method method, boolean weak) {
+        Entry entry = find(holder, method);
+        if (entry == null) {
+            entry = new Entry();
+            add(key(holder, method, weak), entry);
+            if (!weak) strong = true;
+        }
+        return entry;
+    }
+
+    private void add(IdentityKey key, Entry entry) {
+        entries.put(key, entry);
+
+        final Method method = (Method) key.discriminator;
+        final Integer count = methods.get(method);
+        methods.put(method, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Accounts for an entry removed from the entries.
+     */
+    private void removed(IdentityKey key, Entry entry) {
+        bytes -= entry.size;
+
+        final Method method = (Method) key.discriminator;
+        final int count = methods.get(method);
+        if (count == 1) {
+            methods.remove(method);
+        } else {
+            methods.put(method, count - 1);
+        }
+    }
+
+    /**
+     * @return the return node of the last call of the method on the holder, or null if none
+     */
+    public GenericNode get(Object holder, Method method) {
+        final Entry entry = find(holder, method);
+        return entry == null ? null : entry.node;
+    }
+
+    /**
+     * @return the last call of the method on the holder, or null if none
+     */
+    public Invocation getInvocation(Object holder, Method method) {
+        final Entry entry = find(holder, method);
+        return entry == null ? null : entry.invocation;
+    }
+
+    /**
+     * @param weak whether the new entry does not keep the holder alive
+     */
+    public void put(Object holder, Method method, GenericNode node, boolean weak) {
+        final Entry entry = entry(holder, method, weak);
+
+        final Object object = node.getObject();
+
+        bytes -= entry.size;
+        entry.node = node;
+        entry.size = ClassInfo.sizeOf(node);
+        if (!node.clas.isPrimitive() && object != null) entry.size += ClassInfo.sizeOf(object);
+        bytes += entry.size;
+
+        evict();
+    }
+
+    /**
+     * @param weak whether the new entry does not keep the holder alive
+     */
+    public void putInvocation(Object holder, Method method, Invocation invocation, boolean weak) {
+        entry(holder, method, weak).invocation = invocation;
+
+        evict();
+    }
+
+    /**
+     * Evicts the least recently used entries beyond the limits, keeping at least the most recent one.
+     */
+    private void evict() {
+        final Iterator<Map.Entry<IdentityKey, Entry>> i = entries.entrySet().iterator();
+
+        while (entries.size() > 1 && (entries.size() > MaxEntries || bytes > MaxBytes)) {
+            final Map.Entry<IdentityKey, Entry> eldest = i.next();
+            i.remove();
+            removed(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * Holds weakly the holders of the entries and the objects of the return nodes.
+     */
+    public void weaken(WeakObjects objects) {
+        if (!strong) return;
+        strong = false;
+
+        final LinkedHashMap<IdentityKey, Entry> weakened = new LinkedHashMap<IdentityKey, Entry>(entries);
+        entries.clear();
+        methods.clear();
+
+        for (final Map.Entry<IdentityKey, Entry> i : weakened.entrySet()) {
+            final Object holder = i.getKey().getObject();
+            final Entry entry = i.getValue();
+
+            if (holder == null) {
+                bytes -= entry.size;
+                continue;
+            }
+            if (entry.node != null) entry.node.weaken(objects, null);
+            add(IdentityKey.weak(holder, i.getKey().discriminator), entry);
+        }
+    }
+
+    /**
+     * Forgets the entries of the collected holders and of the collected returned objects.
+     */
+    public void pruneCollected() {
+        for (final Iterator<Map.Entry<IdentityKey, Entry>> i = entries.entrySet().iterator(); i.hasNext();) {
+            final Map.Entry<IdentityKey, Entry> next = i.next();
+            final Entry entry = next.getValue();
+
+            if (next.getKey().getObject() == null || entry.node != null && entry.node.isCollected()) {
+                i.remove();
+                removed(next.getKey(), entry);
+            }
+        }
+    }
+
+    /**
+     * @return the returned objects that are not collected, in no order
+     */
+    public List<Object> getObjects() {
+        final ArrayList<Object> objects = new ArrayList<Object>();
+        for (final Entry entry : entries.values()) {
+            final Object object = entry.node == null ? null : entry.node.getObject();
+            if (object != null && !entry.node.clas.isPrimitive()) objects.add(object);
+        }
+        return objects;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the sum of the estimated sizes of the entries
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+}
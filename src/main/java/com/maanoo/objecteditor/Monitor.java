@@ -0,0 +1,239 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+
+
+/**
+ * The recent samples of a numeric field or array element, or of the size of a collection or map, in a ring buffer of
+ * primitives. Each sample is a single field read or size call, the object is never walked.
+ * <p>
+ * Sampled on a background thread and read on the event dispatch thread. Does not keep the sampled object alive.
+ *
+ * @author Akritas Akritidis
+ */
+final class Monitor {
+
+    public static final int Capacity = 60;
+
+    private static final char[] Bars = "▁▂▃▄▅▆▇█".toCharArray();
+
+    /** The holder of the field or the array, or the collection, map or number itself. */
+    private final WeakReference<Object> target;
+    private final Field field;
+    /** The index of the array element or -1. */
+    private final int index;
+
+    public final IdentityKey key;
+
+    private final long[] times = new long[Capacity];
+    private final double[] values = new double[Capacity];
+    /** The position of the next sample. */
+    private int next;
+    private int count;
+
+    private Monitor(Object target, Field field, int index) {
+        this.target = new WeakReference<Object>(target);
+        this.field = field;
+        this.index = index;
+
+        key = IdentityKey.weak(target, discriminator(field, index));
+    }
+
+    /**
+     * @return a monitor of the value of the node, or null if not numeric, a collection or a map
+     */
+    public static Monitor of(GenericNode node) {
+        final Object holder = node.getHolder();
+        if (holder != null && isNumeric(node.clas)) {
+            if (node.field != null) return new Monitor(holder, node.field, -1);
+            if (node.index >= 0) return new Monitor(holder, null, node.index);
+        }
+
+        final Object object = node.getObject();
+        if (!node.clas.isPrimitive() && isSized(object)) return new Monitor(object, null, -1);
+        return null;
+    }
+
+    /**
+     * @return the key of the monitor of the node, not keeping it alive, or null if not monitorable
+     */
+    public static IdentityKey keyOf(GenericNode node) {
+        final Object holder = node.getHolder();
+        if (holder != null && isNumeric(node.clas)) {
+            if (node.field != null || node.index >= 0) {
+                return new IdentityKey(holder, discriminator(node.field, node.index));
+            }
+        }
+
+        final Object object = node.getObject();
+        if (!node.clas.isPrimitive() && isSized(object)) return new IdentityKey(object, null);
+        return null;
+    }
+
+    private static Object discriminator(Field field, int index) {
+        return field != null ? field : index >= 0 ? Integer.valueOf(index) : null;
+    }
+
+    private static boolean isNumeric(Class<?> c) {
+        return c.isPrimitive() ? c != boolean.class && c != void.class : Number.class.isAssignableFrom(c);
+    }
+
+    private static boolean isSized(Object object) {
+        return object instanceof Collection || object instanceof Map || object instanceof Number;
+    }
+
+    /**
+     * @return the current value, or NaN if null
+     */
+    private double read(Object target) throws IllegalAccessException {
+        final Object value;
+        if (field != null) {
+            value = MemberAccess.get(field, target);
+
+        } else if (index >= 0) {
+            if (target.getClass().getComponentType().isPrimitive()) return Array.getDouble(target, index);
+            value = Array.get(target, index);
+
+        } else {
+            value = target;
+        }
+
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof Character) return (Character) value;
+        if (value instanceof Collection) return ((Collection<?>) value).size();
+        if (value instanceof Map) return ((Map<?, ?>) value).size();
+        return Double.NaN;
+    }
+
+    /**
+     * @return false if the target was collected
+     */
+    public boolean sample() {
+        return sample(System.nanoTime());
+    }
+
+    /**
+     * @param time the time of the sample in nanoseconds
+     * @return false if the target was collected
+     */
+    boolean sample(long time) {
+        final Object target = this.target.get();
+        if (target == null) return false;
+
+        // read without the lock, a size call may block and the renderer takes the lock
+        double value;
+        try {
+            value = read(target);
+        } catch (final IllegalAccessException e) {
+            value = Double.NaN;
+        } catch (final RuntimeException e) {
+            // a collection changing concurrently or an array shrunk since
+            value = Double.NaN;
+        }
+
+        synchronized (this) {
+            times[next] = time;
+            values[next] = value;
+            next = (next + 1) % Capacity;
+            if (count < Capacity) count += 1;
+        }
+        return true;
+    }
+
+    public boolean isCollected() {
+        return target.get() == null;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @param i the age of the sample, 0 for the newest
+     */
+    private int position(int i) {
+        return (next - 1 - i + Capacity) % Capacity;
+    }
+
+    /**
+     * @return the newest value, or NaN if none
+     */
+    public synchronized double getLast() {
+        return count == 0 ? Double.NaN : values[position(0)];
+    }
+
+    /**
+     * @return the change per second between the oldest and the newest sample, or NaN if fewer than two
+     */
+    public synchronized double getRate() {
+        if (count < 2) return Double.NaN;
+
+        final int newest = position(0), oldest = position(count - 1);
+        final long span = times[newest] - times[oldest];
+        if (span <= 0) return Double.NaN;
+
+        return (values[newest] - values[oldest]) * 1e9 / span;
+    }
+
+    /**
+     * @return a bar per sample from the oldest to the newest, scaled between their minimum and maximum
+     */
+    public synchronized String getSparkline() {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            final double value = values[position(i)];
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+
+        final char[] line = new char[count];
+        for (int i = 0; i < count; i++) {
+            final double value = values[position(count - 1 - i)];
+
+            if (Double.isNaN(value)) {
+                line[i] = ' ';
+            } else if (max == min) {
+                line[i] = Bars[0];
+            } else {
+                line[i] = Bars[(int) ((value - min) / (max - min) * (Bars.length - 1) + 0.5)];
+            }
+        }
+        return new String(line);
+    }
+
+    /**
+     * @return the rate in changes per second with a sign, empty if unknown
+     */
+    public static String rateText(double rate) {
+        if (Double.isNaN(rate)) return "";
+        return String.format(Locale.ROOT, Math.abs(rate) < 100 ? "%+.2f/s" : "%+.0f/s", rate);
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("monitoring ").append(field != null || index >= 0 ? "value" : "size");
+        sb.append(", ").append(count).append(" samples");
+        if (count != 0) {
+            sb.append(", last ").append(valueText(getLast()));
+            final String rate = rateText(getRate());
+            if (!rate.isEmpty()) sb.append(", ").append(rate);
+        }
+        return sb.toString();
+    }
+
+    private static String valueText(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value) ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+}
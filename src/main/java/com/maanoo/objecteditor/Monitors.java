@@ -0,0 +1,156 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+
+
+/**
+ * The monitors of a session, sampled together while any exist by a single daemon thread shared by all the sessions.
+ * The monitors whose objects are collected are dropped.
+ * <p>
+ * All the methods are called on the event dispatch thread, the samples are reported to the listeners there,
+ * coalesced.
+ *
+ * @author Akritas Akritidis
+ */
+final class Monitors {
+
+    /** The sampling period in milliseconds. */
+    public static final long Period = 500;
+
+    /** Notified on the event dispatch thread after the monitors are sampled. */
+    public interface Listener {
+
+        void sampled();
+    }
+
+    private static ScheduledExecutorService executor;
+
+    private static synchronized ScheduledExecutorService executor() {
+        if (executor != null) return executor;
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "ObjectEditor monitor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        return executor;
+    }
+
+    // ===
+
+    private final HashMap<IdentityKey, Monitor> monitors = new HashMap<IdentityKey, Monitor>();
+
+    /** The monitors read by the sampling thread. */
+    private final CopyOnWriteArrayList<Monitor> sampled = new CopyOnWriteArrayList<Monitor>();
+
+    private final ArrayList<Listener> listeners = new ArrayList<Listener>();
+
+    /** Whether a notification is posted and not yet delivered. */
+    private final AtomicBoolean posted = new AtomicBoolean();
+
+    private ScheduledFuture<?> task;
+
+    /**
+     * @return the monitor of the node, or null if not monitored
+     */
+    public Monitor get(GenericNode node) {
+        if (monitors.isEmpty()) return null;
+
+        final IdentityKey key = Monitor.keyOf(node);
+        return key == null ? null : monitors.get(key);
+    }
+
+    /**
+     * @return the started or the existing monitor of the node, or null if not monitorable
+     */
+    public Monitor start(GenericNode node) {
+        final Monitor existing = get(node);
+        if (existing != null) return existing;
+
+        final Monitor monitor = Monitor.of(node);
+        if (monitor == null) return null;
+
+        monitor.sample();
+        monitors.put(monitor.key, monitor);
+        sampled.add(monitor);
+
+        if (task == null) schedule();
+        return monitor;
+    }
+
+    public void stop(Monitor monitor) {
+        monitors.remove(monitor.key);
+        sampled.remove(monitor);
+
+        if (sampled.isEmpty()) unschedule();
+    }
+
+    public int size() {
+        return monitors.size();
+    }
+
+    private void schedule() {
+        task = executor().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                for (final Monitor monitor : sampled) {
+                    if (!monitor.sample()) sampled.remove(monitor);
+                }
+                post();
+            }
+        }, Period, Period, TimeUnit.MILLISECONDS);
+    }
+
+    private void unschedule() {
+        if (task == null) return;
+
+        task.cancel(false);
+        task = null;
+    }
+
+    private void post() {
+        if (!posted.compareAndSet(false, true)) return;
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                posted.set(false);
+
+                for (final Iterator<Monitor> i = monitors.values().iterator(); i.hasNext();) {
+                    if (i.next().isCollected()) i.remove();
+                }
+                if (sampled.isEmpty()) unschedule();
+
+                for (final Listener listener : new ArrayList<Listener>(listeners)) {
+                    listener.sampled();
+                }
+            }
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+}
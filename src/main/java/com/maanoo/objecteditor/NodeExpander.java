@@ -0,0 +1,40 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+
+/**
+ * Presents the objects of some classes by a logical view instead of their fields, for example the entries of a map
+ * instead of its buckets.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader}, listed in a
+ * <code>META-INF/services/com.maanoo.objecteditor.NodeExpander</code> resource, and are asked before the built-in
+ * ones. They are called on the event dispatch thread, so they should only read the object.
+ *
+ * @author Akritas Akritidis
+ */
+public interface NodeExpander {
+
+    /** Receives the entries of an object, in order. */
+    interface Entries {
+
+        /**
+         * @param name  the name of the entry
+         * @param type  the declared type of the value, its class is shown instead unless primitive or null
+         * @param value the value
+         * @return false if no more entries are wanted
+         */
+        boolean add(String name, Class<?> type, Object value);
+    }
+
+    /**
+     * @return whether the objects of the class are presented by this expander
+     */
+    boolean accepts(Class<?> c);
+
+    /**
+     * Adds the entries of the object, until all are added or no more are wanted. If an exception is thrown the
+     * fields of the object are shown instead.
+     */
+    void expand(Object object, Entries entries) throws Exception;
+
+}
@@ -0,0 +1,277 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicStampedReference;
+
+
+/**
+ * The node expanders, the ones found by the {@link ServiceLoader} followed by the built-in ones for the maps, the
+ * collections, the atomic references and the thread locals of the JDK.
+ *
+ * @author Akritas Akritidis
+ */
+final class NodeExpanders {
+
+    private NodeExpanders() {}
+
+    private static final NodeExpander[] Expanders = load();
+
+    /** Cached for the classes with no expander. */
+    private static final NodeExpander None = new NodeExpander() {
+
+        @Override
+        public boolean accepts(Class<?> c) {
+            return false;
+        }
+
+        @Override
+        public void expand(Object object, Entries entries) {}
+    };
+
+    private static final ConcurrentHashMap<Class<?>, NodeExpander> expanders =
+            new ConcurrentHashMap<Class<?>, NodeExpander>();
+
+    private static NodeExpander[] load() {
+        final ArrayList<NodeExpander> list = new ArrayList<NodeExpander>();
+
+        final Iterator<NodeExpander> i = ServiceLoader.load(NodeExpander.class).iterator();
+        while (true) {
+            try {
+                if (!i.hasNext()) break;
+                list.add(i.next());
+            } catch (final ServiceConfigurationError e) {
+                e.printStackTrace();
+            }
+        }
+
+        list.add(new MapExpander());
+        list.add(new CollectionExpander());
+        list.add(new AtomicExpander());
+        list.add(new ThreadLocalExpander());
+
+        return list.toArray(new NodeExpander[list.size()]);
+    }
+
+    /**
+     * @return the first expander accepting the class or null if none
+     */
+    public static NodeExpander of(Class<?> c) {
+        NodeExpander expander = expanders.get(c);
+        if (expander == null) {
+            expander = None;
+            for (final NodeExpander i : Expanders) {
+                if (i.accepts(c)) {
+                    expander = i;
+                    break;
+                }
+            }
+            expanders.put(c, expander);
+        }
+        return expander == None ? null : expander;
+    }
+
+    // == Built-in
+
+    /** The longest key shown as the name of its entry. */
+    private static final int MaxKeyLength = 40;
+
+    /**
+     * @return whether the public method without parameters of the class is implemented by the JDK, so calling it
+     *         runs no user code
+     */
+    private static boolean isImplementedByJdk(Class<?> c, String method) {
+        try {
+            return c.getMethod(method).getDeclaringClass().getClassLoader() == null;
+        } catch (final NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the name of the entry of the key, or null if the key is not a value that can be shown as a name
+     */
+    private static String keyName(Object key) {
+        final String text;
+        if (key == null) {
+            text = "null";
+        } else if (key instanceof Enum) {
+            text = ((Enum<?>) key).name();
+        } else if (key.getClass().getClassLoader() == null && (key instanceof String || key instanceof Number
+                || key instanceof Boolean || key instanceof Character)) {
+            text = key.toString();
+        } else {
+            return null;
+        }
+        return "[" + (text.length() > MaxKeyLength ? text.substring(0, MaxKeyLength) + "..." : text) + "]";
+    }
+
+    /**
+     * The entries by the names of their keys, or the keys and the values as separate entries if the keys are not
+     * simple values.
+     */
+    private static final class MapExpander implements NodeExpander {
+
+        @Override
+        public boolean accepts(Class<?> c) {
+            return Map.class.isAssignableFrom(c) && isImplementedByJdk(c, "entrySet");
+        }
+
+        @Override
+        public void expand(Object object, Entries entries) {
+            int index = 0;
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                final Object key = entry.getKey();
+                final String name = keyName(key);
+
+                if (name != null) {
+                    if (!entries.add(name, Object.class, entry.getValue())) return;
+                } else {
+                    if (!entries.add("[" + index + "] key", Object.class, key)) return;
+                    if (!entries.add("[" + index + "] value", Object.class, entry.getValue())) return;
+                }
+                index++;
+            }
+        }
+    }
+
+    /** The elements by their order of iteration. */
+    private static final class CollectionExpander implements NodeExpander {
+
+        @Override
+        public boolean accepts(Class<?> c) {
+            return Collection.class.isAssignableFrom(c) && isImplementedByJdk(c, "iterator");
+        }
+
+        @Override
+        public void expand(Object object, Entries entries) {
+            int index = 0;
+            for (final Object element : (Collection<?>) object) {
+                if (!entries.add("[" + index++ + "]", Object.class, element)) return;
+            }
+        }
+    }
+
+    /** The values of the atomic references and the elements of the atomic arrays. */
+    private static final class AtomicExpander implements NodeExpander {
+
+        @Override
+        public boolean accepts(Class<?> c) {
+            return AtomicReference.class.isAssignableFrom(c) || AtomicStampedReference.class.isAssignableFrom(c)
+                    || AtomicMarkableReference.class.isAssignableFrom(c)
+                    || AtomicReferenceArray.class.isAssignableFrom(c) || AtomicIntegerArray.class.isAssignableFrom(c)
+                    || AtomicLongArray.class.isAssignableFrom(c);
+        }
+
+        @Override
+        public void expand(Object object, Entries entries) {
+            if (object instanceof AtomicReference) {
+                entries.add("value", Object.class, ((AtomicReference<?>) object).get());
+
+            } else if (object instanceof AtomicStampedReference) {
+                final int[] stamp = new int[1];
+                final Object reference = ((AtomicStampedReference<?>) object).get(stamp);
+                if (entries.add("reference", Object.class, reference)) entries.add("stamp", int.class, stamp[0]);
+
+            } else if (object instanceof AtomicMarkableReference) {
+                final boolean[] mark = new boolean[1];
+                final Object reference = ((AtomicMarkableReference<?>) object).get(mark);
+                if (entries.add("reference", Object.class, reference)) entries.add("marked", boolean.class, mark[0]);
+
+            } else if (object instanceof AtomicReferenceArray) {
+                final AtomicReferenceArray<?> array = (AtomicReferenceArray<?>) object;
+                for (int i = 0, n = array.length(); i < n; i++) {
+                    if (!entries.add("[" + i + "]", Object.class, array.get(i))) return;
+                }
+
+            } else if (object instanceof AtomicIntegerArray) {
+                final AtomicIntegerArray array = (AtomicIntegerArray) object;
+                for (int i = 0, n = array.length(); i < n; i++) {
+                    if (!entries.add("[" + i + "]", int.class, array.get(i))) return;
+                }
+
+            } else {
+                final AtomicLongArray array = (AtomicLongArray) object;
+                for (int i = 0, n = array.length(); i < n; i++) {
+                    if (!entries.add("[" + i + "]", long.class, array.get(i))) return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The values of the thread local in the live threads, by the names of the threads, read from their maps without
+     * initializing or expunging entries.
+     */
+    private static final class ThreadLocalExpander implements NodeExpander {
+
+        @Override
+        public boolean accepts(Class<?> c) {
+            return ThreadLocal.class.isAssignableFrom(c);
+        }
+
+        private static Field field(Class<?> c, String name) throws NoSuchFieldException, IllegalAccessException {
+            final Field field = c.getDeclaredField(name);
+            if (!MemberAccess.open(field)) throw new IllegalAccessException(name + " of " + c + " is not open");
+            return field;
+        }
+
+        @Override
+        public void expand(Object object, Entries entries) throws Exception {
+            final Field threadMap = field(Thread.class,
+                    object instanceof InheritableThreadLocal ? "inheritableThreadLocals" : "threadLocals");
+
+            Field mapTable = null, entryValue = null;
+
+            for (final Thread thread : getThreads()) {
+                final Object map = threadMap.get(thread);
+                if (map == null) continue;
+
+                if (mapTable == null) mapTable = field(map.getClass(), "table");
+                final Object table = mapTable.get(map);
+
+                for (int i = 0, n = Array.getLength(table); i < n; i++) {
+                    final Object entry = Array.get(table, i);
+                    if (entry == null || ((Reference<?>) entry).get() != object) continue;
+
+                    if (entryValue == null) entryValue = field(entry.getClass(), "value");
+                    if (!entries.add(thread.getName(), Object.class, entryValue.get(entry))) return;
+                    break;
+                }
+            }
+        }
+
+        private static Thread[] getThreads() {
+            ThreadGroup group = Thread.currentThread().getThreadGroup();
+            while (group.getParent() != null) {
+                group = group.getParent();
+            }
+
+            Thread[] threads;
+            int count;
+            do {
+                threads = new Thread[group.activeCount() + 16];
+                count = group.enumerate(threads, true);
+            } while (count == threads.length);
+
+            final Thread[] live = new Thread[count];
+            System.arraycopy(threads, 0, live, 0, count);
+            return live;
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 // Copyright (c) 2020 Akritas Akritidis, see LICENSE.
 package com.maanoo.objecteditor;
 
+import java.io.File;
 import java.util.HashMap;
 
 
@@ -17,6 +18,35 @@ public final class ObjectEditor {
         return new ObjectEditorWindow(object);
     }
 
+    /**
+     * @param enabled whether each new window first starts loading in the background the class information of its
+     *                object's class and of the declared types of the fields reachable from it, also set by the
+     *                <code>objecteditor.warmup</code> system property
+     */
+    public static void setWarmUp(boolean enabled) {
+        ClassWarmUp.setEnabled(enabled);
+    }
+
+    /**
+     * Starts loading in the background the class information of the named classes, of all the classes of the named
+     * packages and of the declared types of the fields reachable from them.
+     *
+     * @param names class or package names
+     */
+    public static void warmUp(String... names) {
+        ClassWarmUp.start(names);
+    }
+
+    /**
+     * Saves the state of the windows in the directory, in a file for each class of root object, and restores it when
+     * a window is opened again on the same class. Also set by the <code>objecteditor.state</code> system property.
+     *
+     * @param directory the directory of the state files or null to not save the state
+     */
+    public static void setStateDirectory(File directory) {
+        StateFile.setDirectory(directory);
+    }
+
     /** Testing main method */
     public static void main(String[] args) {
 
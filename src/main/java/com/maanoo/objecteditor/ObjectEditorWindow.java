@@ -6,22 +6,31 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dialog.ModalityType;
 import java.awt.Dimension;
-import java.awt.Graphics;
 import java.awt.Insets;
+import java.awt.Rectangle;
 import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 import javax.swing.Icon;
@@ -34,18 +43,17 @@ import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
-import javax.swing.JTree;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeCellRenderer;
-import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
-import javax.swing.tree.TreeSelectionModel;
 
 import com.maanoo.objecteditor.ClassInfo.MethodInfo;
 import com.maanoo.objecteditor.ClassInfo.MethodInfo.ParameterProvider;
+import com.maanoo.objecteditor.Session.Option;
 
 
 /**
@@ -66,26 +74,53 @@ public class ObjectEditorWindow {
     private final JTextField filter;
     private final JTextArea status;
 
-    private HashMap<MethodNode, GenericNode> methodReturns;
+    private final Session session;
+
+    private ShortestPath shortestPath;
+
+    private final JScrollPane treeView;
+    /** The table view of the tree or null if not shown. */
+    private TreeTable<Node> table;
+
+    /** The saved state of the window or null if not saved. */
+    private final StateFile stateFile;
+    /** Whether the expansions are recorded, false while they are restored. */
+    private boolean stateRecording;
+    private String stateOptions;
+    private String stateFilter;
+
+    private final MethodReturns methodReturns;
     private MethodNode methodReturnsLastParent;
 
-    private enum Option {
+    /** The edits staged to be applied together. */
+    private final EditBatch batch = new EditBatch();
+    /** The paths of the holders of the staged edits. */
+    private final ArrayList<TreePath> batchPaths = new ArrayList<TreePath>();
+    /** The object locked or synchronized on while applying the staged edits and capturing snapshots or null. */
+    private Object lock;
 
-        ShowFieldsPublic,
-        ShowFieldsNonPublic,
-        ShowFieldsTransient,
+    /** Coalesces the refreshes requested within a frame into one. */
+    private final Timer refreshTimer;
+    /** Whether all the nodes are refreshed, else only the subtrees of the {@link #refreshPaths}. */
+    private boolean refreshAll;
+    private final ArrayList<TreePath> refreshPaths = new ArrayList<TreePath>();
 
-        ShowMethodsVoid,
-        ShowMethodsNonVoid,
-        ShowMethodsWithParams,
+    /** The delay of the refreshes in milliseconds, about a frame. */
+    private static final int RefreshDelay = 16;
 
-        ShowNullElements,
-        ShowObjectInternals,
-        ShowStringInternals,
-        ShowDuplicates,
-    }
+    /** Prunes the nodes of the collected objects, at most once per delay. */
+    private final Timer pruneTimer;
+    private final WeakObjects.Listener collectedListener;
+
+    private final Monitors.Listener sampledListener;
+
+    private final Session.Listener refreshedListener;
+
+    /** The delay of the pruning in milliseconds. */
+    private static final int PruneDelay = 1000;
 
-    // TODO: pass the current options and parsers to children windows
+    /** The memory held by the nodes or null if not measured since the last refresh. */
+    private Footprint footprint;
 
     private final EnumSet<Option> options;
 
@@ -97,6 +132,13 @@ public class ObjectEditorWindow {
     private final HashMap<Class<?>, StringParser<?>> parsers;
 
     private static final String FilterClassPrefix = "$";
+    private static final String FilterQueryPrefix = "/";
+
+    /** The maximum number of nodes matched by a query. */
+    private static final int QueryMaxResults = 10000;
+
+    /** The maximum number of rows revealed by an expand action. */
+    private static final int ExpandMaxRows = 100000;
 
     /**
      * @param object the object to edit
@@ -111,51 +153,104 @@ public class ObjectEditorWindow {
      * @param target an optional class filter for an object to be returned
      */
     public ObjectEditorWindow(Window owner, Object object, Class<?> target) {
+        this(new Session(), owner, object, target);
+    }
+
+    /**
+     * @param session the state shared with the window that opened this one
+     */
+    ObjectEditorWindow(Session session, Window owner, Object object, Class<?> target) {
+        // runs while the nodes are generated and the window is built
+        if (ClassWarmUp.isEnabled()) ClassWarmUp.start(Collections.<Class<?>> singletonList(object.getClass()));
+
+        this.session = session;
         this.windowObject = object;
         this.windowTarget = target;
 
         final String title = (target == null ? toDefaultString(object) : target.getName());
 
-        options = EnumSet.of(
-                Option.ShowFieldsPublic,
-                Option.ShowFieldsNonPublic,
-                Option.ShowMethodsVoid,
-                Option.ShowMethodsNonVoid);
+        options = session.options;
+        parsers = session.parsers;
+        methodReturns = session.methodReturns;
+        generator = new Generator(session);
+
+        // only the state of the first window of a session is saved
+        final boolean first = session.getRoot() == null;
+        session.windowOpened(object);
+        stateFile = (first && target == null) ? StateFile.of(object) : null;
 
-        parsers = new HashMap<Class<?>, StringParser<?>>();
-        parsers.put(CharSequence.class, new StringParser<CharSequence>() {
+        root = new GenericNode(null, 0, object.getClass(), object);
+        tree = new Tree<Node>(root, new TreeRenderer());
+
+        refreshTimer = new Timer(RefreshDelay, new ActionListener() {
             @Override
-            public CharSequence parse(String text) {
-                return text;
+            public void actionPerformed(ActionEvent e) {
+                refreshPending();
             }
         });
-        parsers.put(String.class, parsers.get(CharSequence.class));
+        refreshTimer.setRepeats(false);
 
-        methodReturns = new HashMap<MethodNode, GenericNode>();
+        pruneTimer = new Timer(PruneDelay, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                ObjectEditorWindow.this.session.pruneCollected();
+                pruneNodes(root);
+                footprint = null;
+            }
+        });
+        pruneTimer.setRepeats(false);
 
-        root = new GenericNode(null, 0, object.getClass(), object);
-        tree = new Tree<Node>(root, new TreeRenderer());
+        collectedListener = new WeakObjects.Listener() {
+            @Override
+            public void collected() {
+                if (!options.contains(Option.WeakReferences)) return;
 
-        tree.addMouseListener(new MouseAdapter() {
+                // shown as collected until pruned
+                footprint = null;
+                treeView.repaint();
+                if (!pruneTimer.isRunning()) pruneTimer.start();
+            }
+        };
+        session.weakObjects.addListener(collectedListener);
 
+        sampledListener = new Monitors.Listener() {
             @Override
-            public void mousePressed(MouseEvent e) {
-                if (!SwingUtilities.isRightMouseButton(e)) return;
-                final JPopupMenu popup = new JPopupMenu();
+            public void sampled() {
+                treeView.repaint();
+
+                // the status follows the samples of the selected node only
+                final TreePath path = tree.getSelectionPath();
+                final Object node = path == null ? null : path.getLastPathComponent();
+                final Monitors monitors = ObjectEditorWindow.this.session.monitors;
+                if (node instanceof GenericNode && monitors.get((GenericNode) node) != null) {
+                    status.setText(getStatusText(path) + "\n" + getFootprintText());
+                }
+            }
+        };
+        session.monitors.addListener(sampledListener);
 
-                final int selRow = tree.getRowForLocation(e.getX(), e.getY());
-                if (selRow > -1) {
-                    // select the right clicked node
-                    final TreePath selPath = tree.getPathForLocation(e.getX(), e.getY());
-                    tree.setSelectionPath(selPath);
+        refreshedListener = new Session.Listener() {
+            @Override
+            public void nodeRefreshed(Node node) {
+                structureChanged(node);
+            }
 
-                    final Node n = (Node) selPath.getLastPathComponent();
-                    if (!generatePopupMenuForNode(n, popup)) return;
-                } else {
-                    if (!generatePopupMenuForTree(popup)) return;
+            @Override
+            public void nodesRemoved(Node node, int[] indices, Node[] children) {
+                for (final TreePath path : pathsShowing(node)) {
+                    tree.getModel().nodesRemoved(path, indices, children);
                 }
+            }
+        };
+        session.addListener(refreshedListener);
+
+        tree.addMouseListener(new MouseAdapter() {
 
-                popup.show(tree, e.getX(), e.getY());
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isRightMouseButton(e)) return;
+
+                showPopupMenu(tree, e.getX(), e.getY(), tree.getPathForLocation(e.getX(), e.getY()));
             }
         });
 
@@ -164,7 +259,7 @@ public class ObjectEditorWindow {
         filter.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                refreshNodes();
+                refreshLater();
             }
         });
 
@@ -174,16 +269,33 @@ public class ObjectEditorWindow {
         tree.addTreeSelectionListener(new TreeSelectionListener() {
             @Override
             public void valueChanged(TreeSelectionEvent e) {
-                final Node n = tree.getSelectedNode();
-                status.setText(n == null ? "" : n.getStatusText());
+                final TreePath path = tree.getSelectionPath();
+                status.setText((path == null ? "" : getStatusText(path) + "\n") + getFootprintText());
+            }
+        });
+
+        tree.addTreeExpansionListener(new TreeExpansionListener() {
+            @Override
+            public void treeExpanded(TreeExpansionEvent e) {
+                recordPath(StateFile.Expanded, e.getPath());
+            }
+
+            @Override
+            public void treeCollapsed(TreeExpansionEvent e) {
+                recordPath(StateFile.Collapsed, e.getPath());
             }
         });
 
+        final StateFile.State state = openState();
+
         refreshNodes();
         tree.expandRow(0);
+        restoreState(state);
         tree.selectFirst();
 
-        final JScrollPane treeView = new JScrollPane(tree);
+        stateRecording = true;
+
+        treeView = new JScrollPane(tree);
 
         if (owner == null) {
             final JFrame frame = new JFrame(title);
@@ -194,6 +306,20 @@ public class ObjectEditorWindow {
             final JDialog dialog = new JDialog(owner, title, ModalityType.APPLICATION_MODAL);
             window = dialog;
         }
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                ObjectEditorWindow.this.session.windowClosed(windowObject);
+                ObjectEditorWindow.this.session.weakObjects.removeListener(collectedListener);
+                ObjectEditorWindow.this.session.monitors.removeListener(sampledListener);
+                ObjectEditorWindow.this.session.removeListener(refreshedListener);
+                ObjectEditorWindow.this.session.putFootprint(ObjectEditorWindow.this, null);
+                refreshTimer.stop();
+                pruneTimer.stop();
+                if (shortestPath != null) shortestPath.cancel();
+                if (stateFile != null) stateFile.close();
+            }
+        });
 
         window.setLayout(new BorderLayout());
         window.add(treeView, BorderLayout.CENTER);
@@ -215,8 +341,34 @@ public class ObjectEditorWindow {
         return this;
     }
 
+    /**
+     * Adds methods to be previewed as getters, besides the ones with a getter like name.
+     */
+    public ObjectEditorWindow withGetters(String... names) {
+        session.getters.addAll(Arrays.asList(names));
+        return this;
+    }
+
     // == Popup menus
 
+    /**
+     * @param path the right clicked node or null for the tree menu
+     */
+    private void showPopupMenu(Component invoker, int x, int y, TreePath path) {
+        final JPopupMenu popup = new JPopupMenu();
+
+        if (path != null) {
+            // select the right clicked node
+            tree.setSelectionPath(path);
+
+            if (!generatePopupMenuForNode(path, popup)) return;
+        } else {
+            if (!generatePopupMenuForTree(popup)) return;
+        }
+
+        popup.show(invoker, x, y);
+    }
+
     private boolean generatePopupMenuForTree(final JPopupMenu popup) {
 
         popup.add(menuItemCheckBoxesHeader("Show fields",
@@ -234,38 +386,115 @@ public class ObjectEditorWindow {
         popup.add(menuItemCheckBox("Show null elements", Option.ShowNullElements));
         popup.add(menuItemCheckBox("Show object internals", Option.ShowObjectInternals));
         popup.add(menuItemCheckBox("Show string elements", Option.ShowStringInternals));
+        popup.add(menuItemCheckBox("Show collection internals", Option.ShowCollectionInternals));
         popup.add(menuItemCheckBox("Show duplicates", Option.ShowDuplicates));
+        popup.add(menuItemCheckBox("Preview getters", Option.PreviewGetters));
+        popup.add(menuItemCheckBox("Preview toString", Option.PreviewToString));
+        popup.add(menuItemCheckBox("Weak references", Option.WeakReferences));
+        popup.addSeparator();
+        {
+            final JCheckBoxMenuItem item = new JCheckBoxMenuItem("Table view");
+            item.setState(table != null);
+            item.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    setTableView(item.getState());
+                }
+            });
+            popup.add(item);
+        }
         popup.addSeparator();
         popup.add(menuItemAction("Expand all", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                for (int i = 0; i < tree.getRowCount(); i++) {
-                    tree.expandRow(i);
-                }
+                expandPaths(tree.getCollapsedPaths(tree.getPathForRow(0), Integer.MAX_VALUE, ExpandMaxRows));
             }
         }));
         popup.add(menuItemAction("Expand one", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                for (int i = tree.getRowCount() - 1; i >= 0; i--) {
-                    tree.expandRow(i);
+                final ArrayList<TreePath> paths = new ArrayList<TreePath>();
+                for (int i = 0; i < tree.getRowCount(); i++) {
+                    if (!tree.isExpanded(i) && tree.getNodeAtRow(i).getChildCount() > 0) {
+                        paths.add(tree.getPathForRow(i));
+                    }
                 }
+                expandPaths(paths);
             }
         }));
         popup.add(menuItemAction("Refresh", new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                refreshNodes();
+                session.invalidate();
+                refreshLater();
+            }
+        }));
+        final String capture = session.getSnapshot() == null ? "Capture snapshot" : "Capture again";
+        popup.add(menuItemAction(capture, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                captureSnapshot();
+            }
+        }));
+        if (session.getSnapshot() != null) {
+            popup.add(menuItemAction("Show live objects", new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    session.setSnapshot(null);
+                    status.setText("");
+                    refreshLater();
+                }
+            }));
+        }
+        if (!batch.isEmpty()) {
+            popup.addSeparator();
+            popup.add(menuItemAction("Apply staged edits (" + batch.size() + ")", new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    applyEdits();
+                }
+            }));
+            popup.add(menuItemAction("Discard staged edits", new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    batch.clear();
+                    batchPaths.clear();
+                    status.setText("");
+                    repaintNodes();
+                }
+            }));
+        }
+        popup.addSeparator();
+        popup.add(menuItemAction("Find in graph ...", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                new SearchWindow(window, windowObject, FilterClassPrefix, new SearchWindow.Listener() {
+                    @Override
+                    public void show(ObjectPath path) {
+                        showPath(path);
+                    }
+                });
             }
         }));
 
         return true;
     }
 
-    private boolean generatePopupMenuForNode(final Node n, final JPopupMenu popup) {
+    private boolean generatePopupMenuForNode(final TreePath path, final JPopupMenu popup) {
+        final Node n = (Node) path.getLastPathComponent();
+
+        if (n instanceof GenericNode && ((GenericNode) n).isCollected()
+                || n instanceof MethodNode && ((MethodNode) n).getHolder() == null) {
+            final JMenuItem item = new JMenuItem(Collected);
+            item.setEnabled(false);
+            popup.add(item);
+            return true;
+        }
 
         if (n instanceof MethodNode) {
             final MethodNode node = (MethodNode) n;
+            // held while the menu is shown
+            final Object holder = node.getHolder();
 
             final JMenuItem item = new JMenuItem(
                     "Call method" + (node.method.getParameterCount() > 0 ? " ..." : ""));
@@ -278,7 +507,9 @@ public class ObjectEditorWindow {
                     final Class<?> returnType = method.returnType;
                     Object ret;
                     try {
-                        ret = method.invoke(node.holder, inputValueParameterProvider);
+                        final Invocation invocation = method.call(holder, inputValueParameterProvider);
+                        session.recordInvocation(node, invocation);
+                        ret = invocation.getResult();
                     } catch (final CanceledException ex) {
                         return;
                     } catch (final Exception ex) {
@@ -286,17 +517,12 @@ public class ObjectEditorWindow {
                     }
 
                     if (returnType != void.class) {
-                        final Class<?> cc = (ret instanceof Throwable) ? ret.getClass()
-                                : pickClass(returnType, ret);
-
-                        final GenericNode retNode = new GenericNode(null, -1, cc, ret);
-//                                    generateNodes(retNode, new HashMap<Object, Node>());
+                        putMethodReturn(node, ret);
 
-                        methodReturns.put(node, retNode);
-                        methodReturnsLastParent = node;
+                        if (method.getParameterCount() == 0) recordPath(StateFile.Return, path);
                     }
 
-                    refreshNodes();
+                    refreshLater(path.getParentPath());
 
                 }
             });
@@ -305,19 +531,39 @@ public class ObjectEditorWindow {
         } else if (n instanceof CommandNode) {
             final CommandNode node = (CommandNode) n;
 
+            final TreePath parentPath = path.getParentPath();
+            final Node parent = (Node) parentPath.getLastPathComponent();
+
+            if (node.text.equals(CommandReference)) {
+                linkReference(parentPath, node);
+                tree.expandPath(parentPath);
+                return false;
+            }
+            if (node.text.equals(CommandMore)) {
+                final Object object = ((GenericNode) parent).getObject();
+                if (object != null) session.showMorePage(object);
+                refreshLater(parentPath);
+                return false;
+            }
+
             final boolean[] expanded = reloadNodes();
 
-            final Node parent = (Node) node.getParent();
             parent.removeAllChildren();
             final Node copy = ((Node) node.command).copy();
-            generateNodes((GenericNode) copy);
+            generator.generateNodes((GenericNode) copy);
             parent.add(copy);
 
             reloadNodes(expanded);
             return false;
 
+        } else if (n instanceof GroupNode) {
+            // only expand
+
         } else {
             final GenericNode node = (GenericNode) n;
+            // held while the menu is shown
+            final Object holder = node.getHolder();
+            final Object object = node.getObject();
 
             if (windowTarget != null) {
                 final JMenuItem item = new JMenuItem("Accept");
@@ -325,7 +571,7 @@ public class ObjectEditorWindow {
 
                     @Override
                     public void actionPerformed(ActionEvent e) {
-                        setReturnObject(node.object);
+                        setReturnObject(object);
                     }
                 });
                 popup.add(item);
@@ -342,15 +588,16 @@ public class ObjectEditorWindow {
                             final Class<?> input = node.clas;
                             final Object param = inputValue(input,
                                     node.field == null ? ("[" + node.index + "]") : node.field.getName(),
-                                    node.object == null ? "" : node.object.toString());
+                                    object == null ? "" : object.toString());
 
                             if (node.field != null) {
-                                node.field.set(node.holder, param);
+                                node.field.set(holder, param);
 
                             } else {
-                                Array.set(node.holder, node.index, param);
+                                Array.set(holder, node.index, param);
                             }
-                            refreshNodes();
+                            session.index(param);
+                            refreshLater(path.getParentPath());
 
                         } catch (final ReflectiveOperationException ex) {
                             ex.printStackTrace();
@@ -362,14 +609,69 @@ public class ObjectEditorWindow {
 
                 popup.add(item);
             }
+            {
+                final JMenuItem item = new JMenuItem("Stage edit ...");
+                item.setEnabled(holder != null && (node.field != null || node.index >= 0));
+                item.addActionListener(new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        stageEdit(path, node);
+                    }
+                });
+                popup.add(item);
+            }
+
+            final Monitor monitor = session.monitors.get(node);
+            if (monitor != null) {
+                popup.add(menuItemAction("Stop monitor", new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        session.monitors.stop(monitor);
+                        treeView.repaint();
+                    }
+                }));
+            } else if (Monitor.keyOf(node) != null) {
+                popup.add(menuItemAction("Monitor", new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        session.monitors.start(node);
+                        treeView.repaint();
+                    }
+                }));
+            }
 
-            if (!node.clas.isPrimitive() && node.object != null) {
+            if (!node.clas.isPrimitive() && object != null) {
                 popup.addSeparator();
 
                 popup.add(menuItemAction("Popup", new ActionListener() {
                     @Override
                     public void actionPerformed(ActionEvent e) {
-                        new ObjectEditorWindow(node.object);
+                        new ObjectEditorWindow(session, null, object, null);
+                    }
+                }));
+                popup.add(menuItemAction("Show shortest path from root", new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        showShortestPath(object);
+                    }
+                }));
+                popup.add(menuItemAction("Class histogram ...", new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        new HistogramWindow(window, object, new HistogramWindow.Listener() {
+                            @Override
+                            public void show(Class<?> clas, List<Object> instances) {
+                                final Object[] array = (Object[]) Array.newInstance(clas, instances.size());
+                                new ObjectEditorWindow(session, null, instances.toArray(array), null);
+                            }
+                        });
+                    }
+                }));
+                popup.add(menuItemAction("Use as lock", new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        lock = object;
+                        status.setText("staged edits and captures hold " + toDefaultString(lock));
                     }
                 }));
             }
@@ -381,11 +683,7 @@ public class ObjectEditorWindow {
 
                 @Override
                 public void actionPerformed(ActionEvent e) {
-                    final int offset = tree.getSelectionRows()[0];
-                    final int count = n.getAllChildCount();
-                    for (int i = 0; i < count; i++) {
-                        tree.expandRow(i + offset);
-                    }
+                    expandPaths(tree.getCollapsedPaths(tree.getSelectionPath(), Integer.MAX_VALUE, ExpandMaxRows));
                 }
 
             });
@@ -413,7 +711,8 @@ public class ObjectEditorWindow {
                 } else {
                     options.removeAll(list);
                 }
-                refreshNodes();
+                session.invalidate();
+                refreshLater();
             }
         });
         return item;
@@ -431,162 +730,1093 @@ public class ObjectEditorWindow {
                 } else {
                     options.remove(option);
                 }
-                refreshNodes();
+                session.invalidate();
+                refreshLater();
             }
         });
         return item;
     }
 
-    // == Nodes
+    // == Snapshot
 
-    private void refreshNodes() {
-        final boolean[] expanded = reloadNodes();
+    /**
+     * Captures in the background the objects reachable from the roots of the session and of the window, holding the
+     * lock if any, then shows the capture in all the windows of the session.
+     */
+    private void captureSnapshot() {
+        status.setText("capturing" + (lock != null ? " holding " + toDefaultString(lock) : "") + " ...");
 
-        root.removeAllChildren();
-        generateNodes(root);
+        final Object[] roots = { session.getRoot(), windowObject };
+        Snapshot.start(roots, session.getSnapshot(), lock, new Snapshot.Listener() {
+            @Override
+            public void captured(Snapshot snapshot) {
+                session.setSnapshot(snapshot);
 
-        if (windowTarget != null) {
-            root.add(new GenericNode(null, -1, windowTarget, null));
-            if (windowTarget.isArray()) {
-                final Object emptyArray = Array.newInstance(windowTarget.getComponentType(), 0);
-                root.add(new GenericNode(null, -1, emptyArray.getClass(), emptyArray));
-            } else if (windowTarget.isEnum()) {
-                for (final Object i : windowTarget.getEnumConstants()) {
-                    root.add(new GenericNode(null, -1, windowTarget, i));
-                }
+                status.setText("captured " + snapshot.size() + " objects in " + Invocation.time(snapshot.getDuration())
+                        + ", " + snapshot.getShared() + " unchanged" + (snapshot.isLimited() ? ", limited" : ""));
+                refreshLater();
             }
-        }
+        });
+    }
 
-        final String filterText = filter.getText();
-        final Pattern pattern;
-        Class<?> target;
+    // == Edit batch
 
-        if (filterText.startsWith(FilterClassPrefix)) {
-            pattern = null;
-            final String type = filterText.substring(FilterClassPrefix.length());
-            try {
-                target = Class.forName(type);
-            } catch (final ClassNotFoundException e) {
-                target = ClassInfo.PrimitivesNameMap.get(type);
-            }
-        } else {
-            pattern = filterText.isEmpty() ? null : Pattern.compile(filterText, Pattern.CASE_INSENSITIVE);
-            target = windowTarget;
+    private void stageEdit(TreePath path, GenericNode node) {
+        final Object holder = node.getHolder();
+        final Object object = node.getObject();
+
+        final Object value;
+        try {
+            value = inputValue(node.clas, node.field == null ? ("[" + node.index + "]") : node.field.getName(),
+                    object == null ? "" : object.toString());
+        } catch (final CanceledException e) {
+            return;
+        } catch (final RuntimeException e) {
+            status.setText("not staged, invalid value: " + e);
+            return;
         }
 
-        filterNode(root, pattern, target);
+        batch.stage(holder, node.field, node.index, value);
+        batchPaths.add(path.getParentPath());
 
-        reloadNodes(expanded);
+        final String problem = batch.get(holder, node.field, node.index).validate();
+        status.setText(batch.size() + " staged edits" + (problem != null ? ", invalid " + problem : ""));
+        repaintNodes();
     }
 
-    private boolean[] reloadNodes() {
+    /**
+     * Applies the staged edits together, holding the lock if any, and refreshes once.
+     */
+    private void applyEdits() {
+        final ArrayList<EditBatch.Edit> edits = new ArrayList<EditBatch.Edit>(batch.getEdits());
+        String failure = null;
+        try {
+            batch.apply(lock);
+        } catch (final IllegalArgumentException e) {
+            status.setText("not applied, invalid " + e.getMessage());
+            return;
+        } catch (final TimeoutException e) {
+            status.setText("not applied, " + toDefaultString(lock) + " is held by an other thread");
+            return;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status.setText("not applied, interrupted");
+            return;
+        } catch (final IllegalAccessException e) {
+            e.printStackTrace();
+            failure = batch.getEdits().get(0) + ", " + e;
+        }
 
-        final boolean[] expanded = new boolean[tree.getRowCount()];
-        for (int i = 0; i < expanded.length; i++) {
-            expanded[i] = tree.isExpanded(i);
+        // the edits before a failed one are applied and no longer staged
+        final List<EditBatch.Edit> applied = edits.subList(0, edits.size() - batch.size());
+        for (final EditBatch.Edit edit : applied) {
+            session.index(edit.value);
+        }
+        for (final TreePath path : batchPaths) {
+            refreshLater(path);
         }
+        if (batch.isEmpty()) batchPaths.clear();
 
-        return expanded;
+        final String holding = lock != null ? " holding " + toDefaultString(lock) : "";
+        if (failure != null) {
+            status.setText("applied " + applied.size() + " of " + edits.size() + " edits" + holding
+                    + ", not applied " + failure);
+        } else {
+            status.setText("applied " + applied.size() + " edits" + holding);
+        }
     }
 
-    private void reloadNodes(boolean[] expanded) {
+    private void repaintNodes() {
+        if (table != null) {
+            table.repaint();
+        } else {
+            tree.repaint();
+        }
+    }
+
+    private void putMethodReturn(MethodNode node, Object ret) {
+        final Class<?> cc = (ret instanceof Throwable) ? ret.getClass()
+                : pickClass(node.method.returnType, ret);
 
-        final DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
-        model.reload(root);
+        final GenericNode retNode = generator.hold(new GenericNode(null, -1, cc, ret), null);
+//                                    generateNodes(retNode, new HashMap<Object, Node>());
+
+        methodReturns.put(node.getHolder(), node.method.method, retNode, options.contains(Option.WeakReferences));
+        methodReturnsLastParent = node;
+
+        session.index(ret);
+    }
 
-        for (int i = 0; i < expanded.length && i < tree.getRowCount(); i++) {
-            if (expanded[i]) tree.expandRow(i);
+    /**
+     * @return the status text of the node, with the cost of the last call for method returns and the history of the
+     *         calls for methods and the samples for monitored values
+     */
+    private String getStatusText(TreePath path) {
+        final Node node = (Node) path.getLastPathComponent();
+        final String text = node.getStatusText();
+
+        if (node instanceof MethodNode) {
+            final List<Invocation> history = session.getInvocations(((MethodNode) node).method.method);
+            if (!history.isEmpty()) return text + "\n" + Invocation.summary(history);
+
+        } else if (path.getParentPath() != null && path.getParentPath().getLastPathComponent() instanceof MethodNode) {
+            final MethodNode parent = (MethodNode) path.getParentPath().getLastPathComponent();
+            final Invocation invocation = methodReturns.getInvocation(parent.getHolder(), parent.method.method);
+            if (invocation != null) return text + "\n" + invocation;
         }
 
-        for (int i = 0; i < tree.getRowCount(); i++) {
-            final Node node = tree.getNodeAtRow(i);
+        if (node instanceof GenericNode) {
+            final Monitor monitor = session.monitors.get((GenericNode) node);
+            if (monitor != null) return text + "\n" + monitor;
+        }
+        return text;
+    }
 
-            if (node.equals(methodReturnsLastParent)) tree.expandRow(i);
+    /**
+     * @return the memory held by the nodes of all the open windows of the session, measuring this one if needed
+     */
+    private String getFootprintText() {
+        if (footprint == null) {
+            footprint = Footprint.of(root);
+            session.putFootprint(this, footprint);
         }
-        methodReturnsLastParent = null;
+        return "windows hold " + session.getFootprint();
     }
 
-    private void filterNode(Node node, final Pattern pattern, Class<?> target) {
+    // == State
 
-        for (int i = 0; i < node.getChildCount(); i++) {
-            final Node n = (Node) node.getChildAt(i);
+    private StateFile.State openState() {
+        if (stateFile == null) return null;
 
-            if (!(n instanceof MethodNode)) {
-                filterNode(n, pattern, target);
-            }
+        final StateFile.State state;
+        try {
+            state = stateFile.open();
+        } catch (final IOException e) {
+            e.printStackTrace();
+            return null;
+        }
 
-            if (!filterSingleNode(n, pattern, target)) {
-                node.remove(i);
-                i--;
+        if (state.options != null) {
+            options.clear();
+            for (final String name : state.options.split(",")) {
+                try {
+                    options.add(Option.valueOf(name));
+                } catch (final IllegalArgumentException e) {
+                    // removed option
+                }
             }
         }
-    }
+        if (state.filter != null) filter.setText(state.filter);
 
-    private boolean filterSingleNode(final Node n, final Pattern pattern, Class<?> target) {
+        stateOptions = state.options;
+        stateFilter = state.filter;
+        return state;
+    }
 
-        if (n.getChildCount() > 0) {
-            return true;
+    /**
+     * Calls again the recorded methods and expands the recorded paths, generating only the nodes along them.
+     */
+    private void restoreState(StateFile.State state) {
+        if (state == null) return;
 
-        } else if (n instanceof MethodNode) {
-            final MethodInfo method = ((MethodNode) n).method;
+        // the getters are called again as when previewed, the others may have side effects
+        final ArrayList<MethodNode> calls = new ArrayList<MethodNode>();
+        final StringBuilder others = new StringBuilder();
+        for (final String key : state.returns) {
+            final TreePath path = findPath(key);
+            if (path == null || !(path.getLastPathComponent() instanceof MethodNode)) continue;
 
-            return (pattern == null || pattern.matcher(method.getName()).find()) &&
-                    (target == null || target.isAssignableFrom(method.returnType));
+            final MethodNode node = (MethodNode) path.getLastPathComponent();
+            if (node.method.getParameterCount() != 0) continue;
 
-        } else if (n instanceof GenericNode) {
-            final GenericNode child = (GenericNode) n;
+            calls.add(node);
+            if (!session.isGetter(node.method)) others.append("\n    ").append(node.method);
+        }
+        if (others.length() != 0) {
+            final int answer = JOptionPane.showConfirmDialog(null,
+                    "Call again the methods called when last shown?" + others, toDefaultString(windowObject),
+                    JOptionPane.YES_NO_OPTION);
+
+            if (answer != JOptionPane.YES_OPTION) {
+                for (final Iterator<MethodNode> i = calls.iterator(); i.hasNext();) {
+                    if (!session.isGetter(i.next().method)) i.remove();
+                }
+            }
+        }
 
-            return (pattern == null || pattern.matcher(child.toString()).find()) &&
-                    (target == null || target.isAssignableFrom(child.clas));
+        boolean called = false;
+        for (final MethodNode node : calls) {
+            Object ret;
+            try {
+                final Invocation invocation = node.method.call(node.getHolder(), inputValueParameterProvider);
+                session.recordInvocation(node, invocation);
+                ret = invocation.getResult();
+            } catch (final Exception ex) {
+                ret = ex;
+            }
+            putMethodReturn(node, ret);
+            called = true;
+        }
+        if (called) {
+            session.invalidate();
+            refreshNodes();
+        }
 
-        } else if (n instanceof CommandNode) {
-            return (pattern == null && target == null);
+        final ArrayList<TreePath> paths = new ArrayList<TreePath>();
+        for (final String key : state.expanded) {
+            final TreePath path = findPath(key);
+            if (path != null) paths.add(path);
         }
-        return true;
+        expandPaths(paths);
     }
 
-    private static abstract class Node extends Tree.Node {
+    private void recordState() {
+        if (stateFile == null) return;
 
-        public Node copy() {
-            throw new RuntimeException();
+        final StringBuilder sb = new StringBuilder();
+        for (final Option option : options) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(option.name());
         }
+        final String optionsText = sb.toString();
+        final String filterText = filter.getText();
 
-        private String string;
-
-        @Override
-        public String toString() {
-            if (string != null) return string;
-            return string = getString();
+        if (!optionsText.equals(stateOptions)) {
+            appendState(StateFile.Options, optionsText);
+            stateOptions = optionsText;
+        }
+        if (!filterText.equals(stateFilter)) {
+            appendState(StateFile.Filter, filterText);
+            stateFilter = filterText;
         }
+    }
 
-        protected abstract String getString();
+    /**
+     * Expands the paths at once and records each of them.
+     */
+    private void expandPaths(List<TreePath> paths) {
+        tree.expandPaths(paths);
+
+        for (final TreePath path : paths) {
+            recordPath(StateFile.Expanded, path);
+        }
+    }
+
+    private void recordPath(byte type, TreePath path) {
+        if (stateFile == null || !stateRecording) return;
+
+        final String key = pathKey(path);
+        if (key != null) appendState(type, key);
+    }
+
+    private void appendState(byte type, String text) {
+        try {
+            stateFile.append(type, text);
+        } catch (final IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the steps of the path joined, or null if a step cannot be saved
+     */
+    private static String pathKey(TreePath path) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 1, count = path.getPathCount(); i < count; i++) {
+            final String step = stepKey((Node) path.getPathComponent(i));
+            if (step == null) return null;
+
+            sb.append(StateFile.PathSeparator).append(step);
+        }
+        return sb.toString();
+    }
+
+    private static String stepKey(Node node) {
+        if (node instanceof GenericNode) {
+            final GenericNode gnode = (GenericNode) node;
+            if (gnode instanceof EntryNode) return ((EntryNode) gnode).name;
+            return gnode.field != null ? gnode.field.getName() : "[" + gnode.index + "]";
+
+        } else if (node instanceof MethodNode) {
+            final MethodNode mnode = (MethodNode) node;
+
+            final StringBuilder sb = new StringBuilder();
+            sb.append(mnode.method.getName()).append('(');
+            for (final Class<?> c : mnode.method.parametersTypes) {
+                if (sb.charAt(sb.length() - 1) != '(') sb.append(',');
+                sb.append(c.getName());
+            }
+            return sb.append(')').toString();
+        }
+        return null;
+    }
+
+    /**
+     * @return the path of the key in the current nodes, or null if hidden
+     */
+    private TreePath findPath(String key) {
+        TreePath path = new TreePath(root);
+        if (key.isEmpty()) return path;
+
+        for (final String step : key.substring(1).split(StateFile.PathSeparator, -1)) {
+            final Node node = (Node) path.getLastPathComponent();
+
+            Node next = null;
+            for (int i = 0, count = node.getChildCount(); i < count; i++) {
+                final Node n = (Node) node.getChildAt(i);
+
+                if (step.equals(stepKey(n))) {
+                    next = n;
+                    break;
+                } else if (n instanceof CommandNode && ((CommandNode) n).text.equals(CommandReference)) {
+                    linkReference(path, (CommandNode) n);
+                    i = -1;
+                    count = node.getChildCount();
+                }
+            }
+            if (next == null) return null;
+
+            path = path.pathByAddingChild(next);
+        }
+        return path;
+    }
+
+    // == Nodes
+
+    /**
+     * Refreshes all the nodes in the next frame, along with any other refreshes requested until then.
+     */
+    private void refreshLater() {
+        refreshAll = true;
+        refreshPaths.clear();
+        if (!refreshTimer.isRunning()) refreshTimer.start();
+    }
+
+    /**
+     * Refreshes in the next frame only the subtree of a holder whose fields or state changed, along with any other
+     * refreshes requested until then.
+     */
+    private void refreshLater(TreePath holderPath) {
+        // the other windows may show the holder too
+        session.invalidateExcept(windowObject);
+
+        if (!refreshAll) refreshPaths.add(holderPath);
+        if (!refreshTimer.isRunning()) refreshTimer.start();
+    }
+
+    private void refreshPending() {
+        boolean all = refreshAll;
+
+        for (int i = 0; i < refreshPaths.size() && !all; i++) {
+            all = !refreshSubtree(refreshPaths.get(i));
+        }
+        refreshAll = false;
+        refreshPaths.clear();
+        footprint = null;
+
+        if (all) refreshNodes();
+    }
+
+    /**
+     * Generates again the children of the node of the path in place, keeping the rest of the tree.
+     *
+     * @return false if the tree is filtered or the node is not the only expanded node of its object, so all the
+     *         nodes must be refreshed instead
+     */
+    private boolean refreshSubtree(TreePath path) {
+        if (windowTarget != null || !filter.getText().isEmpty()) return false;
+        if (options.contains(Option.ShowDuplicates) || path.getPathCount() < 2) return false;
+
+        final Session.Traversal traversal = session.getTraversal(windowObject);
+        if (traversal == null || !(path.getLastPathComponent() instanceof GenericNode)) return false;
+
+        final GenericNode holder = (GenericNode) path.getLastPathComponent();
+        final Object object = holder.getObject();
+        if (object == null || holder.isLinked() || traversal.index.get(object) != holder) return false;
+
+        final int row = tree.getRowForPath(path);
+        if (row < 0) return false;
+
+        // the expansions of the rows of the subtree, by their order
+        final ArrayList<Boolean> expanded = new ArrayList<Boolean>();
+        for (int i = row; i < tree.getRowCount(); i++) {
+            final TreePath rowPath = tree.getPathForRow(i);
+            if (i > row && rowPath.getPathCount() <= path.getPathCount()) break;
+            expanded.add(tree.isExpanded(i));
+        }
+
+        // the objects met in the old subtree are met again in the new one or are no longer reachable from it
+        final IdentityMap<Boolean> removed = new IdentityMap<Boolean>();
+        unindex(holder, traversal.index, removed);
+
+        final NodeMap parents = new NodeMap(0);
+        for (int i = 0; i < path.getPathCount(); i++) {
+            if (!(path.getPathComponent(i) instanceof GenericNode)) continue;
+
+            final GenericNode ancestor = (GenericNode) path.getPathComponent(i);
+            if (ancestor.getObject() != null) parents.put(ancestor.getObject(), ancestor);
+        }
+
+        holder.removeAllChildren();
+        // the index is the map of the first nodes filled by the traversal
+        generator.generateNodes(holder, parents, (NodeMap) traversal.index, path.getPathCount() - 1);
+
+        // the nodes are shared, every window showing the node lays it out again, including this one
+        session.nodeRefreshed(holder);
+
+        if (!retarget(traversal.root, removed, traversal.index)) {
+            session.invalidate();
+            return false;
+        }
+
+        final boolean recording = stateRecording;
+        stateRecording = false;
+
+        final boolean[] expansions = new boolean[expanded.size()];
+        for (int i = 0; i < expansions.length; i++) {
+            expansions[i] = expanded.get(i);
+        }
+        final ArrayList<TreePath> paths = new ArrayList<TreePath>();
+        expandedPaths(path, expansions, new int[1], paths);
+        tree.expandPaths(paths);
+        methodReturnsLastParent = null;
+
+        stateRecording = recording;
+        return true;
+    }
+
+    /**
+     * Collects the paths of the regenerated nodes to expand, matching the expansions of the old rows by their order,
+     * as if expanding each row in turn, and the path of the parent of the last method return.
+     *
+     * @param row the position in the expansions of the path
+     */
+    private void expandedPaths(TreePath path, boolean[] expanded, int[] row, List<TreePath> paths) {
+        final Node node = (Node) path.getLastPathComponent();
+        final boolean expand = row[0] < expanded.length && expanded[row[0]];
+        row[0] += 1;
+
+        if (node.getChildCount() == 0) return;
+        if (!expand) {
+            if (node.equals(methodReturnsLastParent)) paths.add(path);
+            return;
+        }
+        paths.add(path);
+
+        for (int i = 0, count = node.getChildCount(); i < count && row[0] < expanded.length; i++) {
+            expandedPaths(path.pathByAddingChild(node.getChildAt(i)), expanded, row, paths);
+        }
+    }
+
+    /**
+     * Lays out again the expanded paths showing the node or a link to it, whose children are no longer the same.
+     */
+    private void structureChanged(Node node) {
+        final List<TreePath> paths = pathsShowing(node);
+
+        // the expansions under a changed path are dropped with it
+        for (final Iterator<TreePath> i = paths.iterator(); i.hasNext();) {
+            final TreePath path = i.next();
+            for (final TreePath other : paths) {
+                if (other != path && other.isDescendant(path)) {
+                    i.remove();
+                    break;
+                }
+            }
+        }
+
+        final boolean recording = stateRecording;
+        stateRecording = false;
+
+        for (final TreePath path : paths) {
+            tree.getModel().nodeStructureChanged(path);
+        }
+
+        stateRecording = recording;
+    }
+
+    /**
+     * @return the expanded paths showing the children of the node, as the node or as a link to it
+     */
+    private List<TreePath> pathsShowing(Node node) {
+        final ArrayList<TreePath> paths = new ArrayList<TreePath>();
+
+        final Enumeration<TreePath> e = tree.getExpandedDescendants(new TreePath(root));
+        if (e == null) return paths;
+
+        while (e.hasMoreElements()) {
+            final TreePath path = e.nextElement();
+            final Object last = path.getLastPathComponent();
+            if (last == node || last instanceof GenericNode && ((GenericNode) last).link == node) paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * Removes the nodes whose holder or, without a holder, whose object is collected, without following links, and
+     * notifies the windows showing their parents. The nodes whose holder is not collected stay shown as collected until
+     * their holder is refreshed, its field or element no longer refers to the collected object.
+     */
+    private void pruneNodes(Node node) {
+        int count = 0;
+        final ArrayList<Integer> indices = new ArrayList<Integer>();
+        final ArrayList<Node> removed = new ArrayList<Node>();
+
+        for (int i = 0, n = node.getChildCount(); i < n; i++) {
+            final Node child = (Node) node.getChildAt(i);
+
+            if (child instanceof GenericNode && ((GenericNode) child).isCollected()
+                    && ((GenericNode) child).getHolder() == null) {
+                indices.add(i);
+                removed.add(child);
+                continue;
+            }
+            if (!child.isLinked()) pruneNodes(child);
+
+            if (count != i) node.setChildAt(count, child);
+            count++;
+        }
+        if (removed.isEmpty()) return;
+
+        node.setChildCount(count);
+
+        final int[] array = new int[indices.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = indices.get(i);
+        }
+        session.nodesRemoved(node, array, removed.toArray(new Node[removed.size()]));
+    }
+
+    /**
+     * Removes from the index the nodes of the subtree, without following links and references.
+     *
+     * @param removed filled with the removed nodes
+     */
+    private static void unindex(Node node, IdentityMap<Node> index, IdentityMap<Boolean> removed) {
+        for (int i = 0, count = node.getChildCount(); i < count; i++) {
+            final Node child = (Node) node.getChildAt(i);
+
+            if (child instanceof GenericNode) {
+                final Object object = ((GenericNode) child).getObject();
+                if (object != null && index.get(object) == child) {
+                    index.remove(object);
+                    removed.put(child, Boolean.TRUE);
+                }
+            }
+            if (!child.isLinked()) unindex(child, index, removed);
+        }
+    }
+
+    /**
+     * Points the references of the subtree to the removed nodes to the new nodes of their objects.
+     *
+     * @return false if a removed node is linked or its object is no longer indexed
+     */
+    private static boolean retarget(Node node, IdentityMap<Boolean> removed, IdentityMap<Node> index) {
+        if (removed.size() == 0) return true;
+
+        for (int i = 0, count = node.getChildCount(); i < count; i++) {
+            final Node child = (Node) node.getChildAt(i);
+
+            if (child instanceof CommandNode) {
+                final CommandNode command = (CommandNode) child;
+                if (!removed.containsKey(command.command)) continue;
+
+                final Node renode = index.get(((GenericNode) command.command).getObject());
+                if (renode == null) return false;
+                command.command = renode;
+
+            } else if (child.isLinked()) {
+                if (removed.containsKey(((GenericNode) child).link)) return false;
+
+            } else if (!retarget(child, removed, index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void refreshNodes() {
+        recordState();
+        footprint = null;
+
+        final boolean[] expanded = reloadNodes();
+
+        root.removeAllChildren();
+
+        if (filter.getText().startsWith(FilterQueryPrefix)) {
+            generateQueryNodes(filter.getText().substring(FilterQueryPrefix.length()));
+
+            reloadNodes(expanded);
+            return;
+        }
+
+        if (windowTarget != null) {
+            generateTargetNodes();
+        } else {
+            final GenericNode generated = generatedNode();
+            for (int i = 0, count = generated.getChildCount(); i < count; i++) {
+                root.add(generated.getChildAt(i));
+            }
+        }
+
+        if (windowTarget != null) {
+            root.add(new GenericNode(null, -1, windowTarget, null));
+            if (windowTarget.isArray()) {
+                final Object emptyArray = Array.newInstance(windowTarget.getComponentType(), 0);
+                root.add(new GenericNode(null, -1, emptyArray.getClass(), emptyArray));
+            } else if (windowTarget.isEnum()) {
+                for (final Object i : windowTarget.getEnumConstants()) {
+                    root.add(new GenericNode(null, -1, windowTarget, i));
+                }
+            }
+        }
+
+        final String filterText = filter.getText();
+        final Pattern pattern;
+        Class<?> target;
+
+        if (filterText.startsWith(FilterClassPrefix)) {
+            pattern = null;
+            final String type = filterText.substring(FilterClassPrefix.length());
+            try {
+                target = Class.forName(type);
+            } catch (final ClassNotFoundException e) {
+                target = ClassInfo.PrimitivesNameMap.get(type);
+            }
+        } else {
+            pattern = filterText.isEmpty() ? null : Pattern.compile(filterText, Pattern.CASE_INSENSITIVE);
+            target = windowTarget;
+        }
+
+        if (pattern != null || target != null) {
+            final Node filtered = filterNode(root, pattern, target);
+            if (filtered != root) {
+                root.removeAllChildren();
+                for (int i = 0, count = filtered.getChildCount(); i < count; i++) {
+                    root.add(filtered.getChildAt(i));
+                }
+            }
+        }
+
+        reloadNodes(expanded);
+    }
+
+    /** The maximum number of instances listed for each class by the target picker. */
+    private static final int TargetMaxInstances = 1000;
+
+    /**
+     * Generates a node for each indexed class assignable to the window target, holding its instances.
+     */
+    private void generateTargetNodes() {
+        final TypeIndex index = session.getTypeIndex(windowObject);
+
+        for (final Class<?> c : index.getClasses(windowTarget)) {
+            final List<Object> instances = index.getInstances(c);
+
+            final GroupNode group = new GroupNode(c, instances.size());
+            for (int i = 0, n = Math.min(instances.size(), TargetMaxInstances); i < n; i++) {
+                group.add(generator.hold(new GenericNode(null, i, c, instances.get(i)), null));
+            }
+            root.add(group);
+        }
+    }
+
+    /**
+     * @return the unfiltered node of the window object, shared with the other windows of the session if possible
+     */
+    private GenericNode generatedNode() {
+        final GenericNode node = session.findNode(windowObject);
+        if (node != null) return node;
+
+        final GenericNode generated = generator.hold(new GenericNode(null, 0, windowObject.getClass(), windowObject),
+                null);
+        final NodeMap index = generator.generateNodes(generated);
+
+        // the index would keep all the objects alive
+        if (options.contains(Option.WeakReferences)) {
+            session.removeTraversal(windowObject);
+        } else {
+            session.putTraversal(windowObject, generated, index);
+        }
+        return generated;
+    }
+
+    private Query query;
+
+    /**
+     * Generates only the nodes along the paths matched by the query, and the subtrees of the matched nodes.
+     */
+    private void generateQueryNodes(String text) {
+
+        if (query == null || !query.text.equals(text)) {
+            try {
+                query = Query.compile(text);
+            } catch (final ParseException e) {
+                query = null;
+                status.setText(e.getMessage());
+                return;
+            }
+        }
+
+        final NodeMap renodes = new NodeMap(0);
+
+        query.evaluate(windowObject, new Query.Sink() {
+
+            private ObjectPath[] lastSteps = new ObjectPath[0];
+            private GenericNode[] lastNodes = new GenericNode[0];
+            private int count;
+
+            @Override
+            public boolean found(ObjectPath path) {
+                final ObjectPath[] steps = path.toArray();
+                final GenericNode[] nodes = new GenericNode[steps.length];
+                nodes[0] = root;
+
+                final NodeMap parents = new NodeMap(0);
+
+                for (int d = 1; d < steps.length; d++) {
+                    final ObjectPath step = steps[d];
+
+                    if (d < lastSteps.length && lastSteps[d] == step) {
+                        nodes[d] = lastNodes[d];
+                    } else {
+                        nodes[d] = step.field != null
+                                ? new GenericNode(step.parent.object, step.field, step.clas, step.object)
+                                : new GenericNode(step.parent.object, step.index, step.clas, step.object);
+                        generator.hold(nodes[d], nodes[d - 1]);
+                        nodes[d - 1].add(nodes[d]);
+                    }
+                    if (step.parent.object != null) parents.put(step.parent.object, nodes[d - 1]);
+                }
+
+                if (steps.length > 1) {
+                    generator.generateNodesPropagate(nodes[steps.length - 1], parents, renodes, steps.length - 1);
+                }
+
+                lastSteps = steps;
+                lastNodes = nodes;
+                return ++count < QueryMaxResults;
+            }
+        });
+    }
+
+    private boolean[] reloadNodes() {
+
+        final boolean[] expanded = new boolean[tree.getRowCount()];
+        for (int i = 0; i < expanded.length; i++) {
+            expanded[i] = tree.isExpanded(i);
+        }
+
+        return expanded;
+    }
+
+    private void reloadNodes(boolean[] expanded) {
+        // the expansions are already recorded
+        final boolean recording = stateRecording;
+        stateRecording = false;
+
+        tree.getModel().reload();
+
+        final ArrayList<TreePath> paths = new ArrayList<TreePath>();
+        final int[] row = new int[1];
+        if (tree.isRootVisible()) {
+            expandedPaths(new TreePath(root), expanded, row, paths);
+        } else {
+            for (int i = 0, count = root.getChildCount(); i < count && row[0] < expanded.length; i++) {
+                expandedPaths(new TreePath(root).pathByAddingChild(root.getChildAt(i)), expanded, row, paths);
+            }
+        }
+        tree.expandPaths(paths);
+        methodReturnsLastParent = null;
+
+        stateRecording = recording;
+    }
+
+    /**
+     * Shares the already generated subtree of the object of a reference node.
+     */
+    private void linkReference(TreePath parentPath, CommandNode node) {
+        final GenericNode target = (GenericNode) node.command;
+        ((GenericNode) parentPath.getLastPathComponent()).link(target);
+        session.link(target.getObject());
+
+        tree.getModel().nodeStructureChanged(parentPath);
+    }
+
+    /**
+     * Searches in the background for the shortest path to the object and shows it, from the root of the window or,
+     * for the root itself, from the root of the session in a new window.
+     */
+    private void showShortestPath(final Object object) {
+        final Object from = (object == windowObject) ? session.getRoot() : windowObject;
+        if (from == object) {
+            showPath(ObjectPath.root(object));
+            return;
+        }
+
+        if (shortestPath != null) shortestPath.cancel();
+        shortestPath = new ShortestPath(from, object);
+
+        status.setText("searching the shortest path from " + toDefaultString(from) + " ...");
+        shortestPath.start(new ShortestPath.Listener() {
+            @Override
+            public void found(ObjectPath path) {
+                status.setText("shortest path " + path);
+
+                if (from == windowObject) {
+                    showPath(path);
+                } else {
+                    new ObjectEditorWindow(session, null, from, null).showPath(path);
+                }
+            }
+
+            @Override
+            public void notFound(int visited, boolean limited) {
+                status.setText((limited ? "not found in the first " : "not reachable, visited ")
+                        + visited + " objects");
+            }
+        });
+    }
+
+    /**
+     * Selects the node of the path, or the deepest existing node if the path is hidden.
+     */
+    private void showPath(ObjectPath target) {
+        final ObjectPath[] steps = target.toArray();
+
+        TreePath path = new TreePath(root);
+        int shown = 0;
+
+        while (shown + 1 < steps.length) {
+            final ObjectPath step = steps[shown + 1];
+            final Node node = (Node) path.getLastPathComponent();
+
+            Node next = null;
+            for (int i = 0, count = node.getChildCount(); i < count; i++) {
+                final Node n = (Node) node.getChildAt(i);
+
+                if (n instanceof GenericNode) {
+                    final GenericNode child = (GenericNode) n;
+                    if (step.sameStep(child.field, child.index)
+                            && (child.clas.isPrimitive() || child.getObject() == step.object)) {
+                        next = child;
+                        break;
+                    }
+                    // the entries of an expanded object skip the steps through its internals
+                    if (child instanceof EntryNode && !child.clas.isPrimitive()) {
+                        final int skipped = findStep(steps, shown + 1, child.getObject());
+                        if (skipped > 0) {
+                            next = child;
+                            shown += skipped;
+                            break;
+                        }
+                    }
+                } else if (n instanceof CommandNode && ((CommandNode) n).text.equals(CommandReference)) {
+                    linkReference(path, (CommandNode) n);
+                    i = -1;
+                    count = node.getChildCount();
+                }
+            }
+            if (next == null) break;
+
+            path = path.pathByAddingChild(next);
+            shown++;
+        }
+
+        tree.setSelectionPath(path);
+        tree.scrollPathToVisible(path);
+
+        if (shown + 1 < steps.length) {
+            status.setText(target + "\nnot shown, hidden by the options or the filter");
+        }
+    }
+
+    /**
+     * @return the number of steps from the first one to the last step of the object, or 0 if none
+     */
+    private static int findStep(ObjectPath[] steps, int first, Object object) {
+        if (object == null) return 0;
+
+        for (int i = steps.length - 1; i > first; i--) {
+            if (steps[i].object == object) return i - first;
+        }
+        return 0;
+    }
+
+    /**
+     * Filters without modifying the nodes, which may be shared with other windows.
+     *
+     * @return the node itself if all its descendants are kept, else a copy of it with only the kept children
+     */
+    static Node filterNode(Node node, final Pattern pattern, Class<?> target) {
+
+        Node[] kept = null;
+        int keptCount = 0;
+
+        for (int i = 0, count = node.getChildCount(); i < count; i++) {
+            final Node n = (Node) node.getChildAt(i);
+
+            final Node filtered = (n instanceof MethodNode || n.isLinked()) ? n : filterNode(n, pattern, target);
+            final boolean keep = filterSingleNode(filtered, pattern, target);
+
+            if (kept == null) {
+                if (keep && filtered == n) continue;
+
+                // first change, keep the unchanged children so far
+                kept = new Node[count];
+                for (int j = 0; j < i; j++) {
+                    kept[j] = (Node) node.getChildAt(j);
+                }
+                keptCount = i;
+            }
+            if (keep) kept[keptCount++] = filtered;
+        }
+
+        if (kept == null) return node;
+
+        final Node copy = node.copy();
+        for (int i = 0; i < keptCount; i++) {
+            copy.add(kept[i]);
+        }
+        return copy;
+    }
+
+    private static boolean filterSingleNode(final Node n, final Pattern pattern, Class<?> target) {
+
+        if (n.getChildCount() > 0) {
+            return true;
+
+        } else if (n instanceof MethodNode) {
+            final MethodInfo method = ((MethodNode) n).method;
+
+            return (pattern == null || pattern.matcher(method.getName()).find()) &&
+                    (target == null || target.isAssignableFrom(method.returnType));
+
+        } else if (n instanceof GenericNode) {
+            final GenericNode child = (GenericNode) n;
+
+            return (pattern == null || pattern.matcher(child.toString()).find()) &&
+                    (target == null || target.isAssignableFrom(child.clas));
+
+        } else if (n instanceof CommandNode) {
+            return (pattern == null && target == null);
+
+        } else if (n instanceof GroupNode) {
+            return false;
+        }
+        return true;
+    }
+
+    /** Shown instead of the objects collected in the weak references mode. */
+    private static final String Collected = "(collected)";
+
+    static abstract class Node extends Tree.Node {
+
+        public Node copy() {
+            throw new RuntimeException();
+        }
+
+        private String string;
+
+        @Override
+        public String toString() {
+            if (string != null) return string;
+            return string = getString();
+        }
+
+        protected abstract String getString();
+
+        /** The cells of the table view, computed when first shown. */
+        private Object[] cells;
+
+        /**
+         * @param column the index of the name, type, value or shallow size
+         */
+        public Object getCell(int column) {
+            if (cells == null) cells = getCells();
+            return cells[column];
+        }
+
+        protected Object[] getCells() {
+            return new Object[] { toString(), null, null, null };
+        }
 
         protected abstract String getStatusText();
+
+        /**
+         * @return whether the children are shared with an other node
+         */
+        public boolean isLinked() {
+            return false;
+        }
     }
 
-    private static abstract class HolderNode extends Node {
+    static abstract class HolderNode extends Node {
 
-        public final Object holder;
+        /** The holder, or a reference of {@link WeakObjects} to it if weak. */
+        private Object holder;
 
         public HolderNode(Object holder) {
             super();
             this.holder = holder;
         }
 
+        /**
+         * Shares the holder, weak or not, of the node.
+         */
+        protected HolderNode(HolderNode node) {
+            super();
+            this.holder = node.holder;
+        }
+
+        /**
+         * @return the holder or null if collected
+         */
+        public Object getHolder() {
+            return WeakObjects.get(holder);
+        }
+
+        public boolean isWeak() {
+            return WeakObjects.isReference(holder);
+        }
+
+        /**
+         * Holds the holder weakly.
+         *
+         * @param holderNode the node of the holder, whose reference is shared, or null
+         */
+        public void weaken(WeakObjects objects, GenericNode holderNode) {
+            if (isWeak()) return;
+
+            holder = holderNode != null ? holderNode.getObjectReference(objects) : objects.wrap(holder);
+        }
+
     }
 
-    private static class MethodNode extends HolderNode {
+    static class MethodNode extends HolderNode {
 
         public final MethodInfo method;
 
+        /** By the identity of the holder, computed once since the holder of a weak node may be collected. */
+        private final int hash;
+
         public MethodNode(Object holder, MethodInfo method) {
             super(holder);
             this.method = method;
+
+            hash = 31 * System.identityHashCode(holder) + method.method.hashCode();
+        }
+
+        private MethodNode(MethodNode node) {
+            super(node);
+            this.method = node.method;
+            this.hash = node.hash;
         }
 
         @Override
         public MethodNode copy() {
-            return new MethodNode(holder, method);
+            return new MethodNode(this);
         }
 
         @Override
@@ -599,13 +1829,23 @@ public class ObjectEditorWindow {
             return method.method.toString() + " :: " + method.getDeclaringClass();
         }
 
+        @Override
+        protected Object[] getCells() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(method.getName()).append("(");
+            for (final Class<?> c : method.parametersTypes) {
+                if (sb.charAt(sb.length() - 1) != '(') sb.append(", ");
+                sb.append(c.getSimpleName());
+            }
+            sb.append(")");
+
+            final String type = method.returnType == void.class ? null : method.returnType.getSimpleName();
+            return new Object[] { sb.toString(), type, null, null };
+        }
+
         @Override
         public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((holder == null) ? 0 : holder.hashCode());
-            result = prime * result + ((method.method == null) ? 0 : method.method.hashCode());
-            return result;
+            return hash;
         }
 
         @Override
@@ -614,27 +1854,25 @@ public class ObjectEditorWindow {
             if (obj == null) return false;
             if (getClass() != obj.getClass()) return false;
             final MethodNode other = (MethodNode) obj;
-            if (holder == null) {
-                if (other.holder != null) return false;
-            } else if (!holder.equals(other.holder)) return false;
-            if (method.method == null) {
-                if (other.method.method != null) return false;
-            } else if (!method.method.equals(other.method.method)) return false;
-            return true;
+            return getHolder() == other.getHolder() && method.method.equals(other.method.method);
         }
 
     }
 
-    private static class GenericNode extends Node {
+    static class GenericNode extends Node {
 
         // TODO: split into sub classes
 
-        public final Object holder;
+        // the weak references are told apart by their class, so that the nodes do not grow by a flag
+
+        /** The holder, or a reference of {@link WeakObjects} to it if weak. */
+        private Object holder;
         public final Field field;
         public final int index;
 
         public final Class<?> clas;
-        public final Object object;
+        /** The object, or a reference of {@link WeakObjects} to it if weak and not of a primitive type. */
+        private Object object;
 
         public GenericNode(Object holder, Field field, Class<?> clas, Object object) {
             this(holder, field, 0, clas, object);
@@ -652,30 +1890,116 @@ public class ObjectEditorWindow {
             this.object = object;
         }
 
+        /**
+         * Shares the holder and the object, weak or not, of the node.
+         */
+        protected GenericNode(GenericNode node) {
+            this(node.holder, node.field, node.index, node.clas, node.object);
+        }
+
+        /**
+         * @return the holder or null if collected
+         */
+        public Object getHolder() {
+            return WeakObjects.get(holder);
+        }
+
+        /**
+         * @return the object or null if collected
+         */
+        public Object getObject() {
+            return WeakObjects.get(object);
+        }
+
+        public boolean isWeak() {
+            return WeakObjects.isReference(holder) || WeakObjects.isReference(object);
+        }
+
+        /**
+         * @return whether the holder or the object was collected
+         */
+        public boolean isCollected() {
+            return WeakObjects.isCollected(holder) || WeakObjects.isCollected(object);
+        }
+
+        /**
+         * Holds the holder and the object weakly, except the values of primitive types which only the node holds.
+         *
+         * @param holderNode the node of the holder, whose reference is shared, or null
+         */
+        public void weaken(WeakObjects objects, GenericNode holderNode) {
+            if (!WeakObjects.isReference(holder)) {
+                holder = holderNode != null ? holderNode.getObjectReference(objects) : objects.wrap(holder);
+            }
+            if (!clas.isPrimitive() && !WeakObjects.isReference(object)) object = objects.wrap(object);
+        }
+
+        /**
+         * @return a weak reference to the object, the one of the node if weak
+         */
+        private Object getObjectReference(WeakObjects objects) {
+            return WeakObjects.isReference(object) ? object : objects.wrap(object);
+        }
+
+        /** A node of the same object whose children are shown instead of generating them again. */
+        private GenericNode link;
+
+        public void link(GenericNode node) {
+            removeAllChildren();
+            link = node;
+        }
+
+        @Override
+        public boolean isLinked() {
+            return link != null;
+        }
+
+        @Override
+        public int getChildCount() {
+            return link == null ? super.getChildCount() : link.getChildCount();
+        }
+
+        @Override
+        public Tree.Node getChildAt(int index) {
+            return link == null ? super.getChildAt(index) : link.getChildAt(index);
+        }
+
+        @Override
+        public int getIndex(Tree.Node child) {
+            return link == null ? super.getIndex(child) : link.getIndex(child);
+        }
+
+        @Override
+        public int getAllChildCount() {
+            return link == null ? super.getAllChildCount() : link.getAllChildCount();
+        }
+
         @Override
         public GenericNode copy() {
-            final GenericNode node = new GenericNode(holder, field, index, clas, object);
+            final GenericNode node = new GenericNode(this);
 //            if (children != null) for (final Object i : children) {
 //                node.add(((Node) i).copy());
 //            }
             return node;
         }
 
+        /**
+         * @return the name of the field, the index of the element or - if neither
+         */
+        protected String getName() {
+            return field != null ? field.getName() : index >= 0 ? "[" + index + "]" : "-";
+        }
+
         @Override
         protected String getString() {
             final StringBuilder sb = new StringBuilder();
 
-            if (field != null) {
-                sb.append(field.getName());
-            } else if (index >= 0) {
-                sb.append("[").append(index).append("]");
-            } else {
-                sb.append("-");
-            }
+            sb.append(getName());
             sb.append(" : ").append(clas.getSimpleName());
 
+            // the null values, not the collected objects
             if (clas.isPrimitive() || clas == String.class || clas.isEnum() || object == null) {
-                sb.append(" = ").append(object);
+                if (!isCollected()) sb.append(" = ").append(getObject());
             }
             return sb.toString();
         }
@@ -696,12 +2020,70 @@ public class ObjectEditorWindow {
             return sb.toString();
         }
 
+        @Override
+        protected Object[] getCells() {
+            final String name = getName();
+
+            final Object object = getObject();
+
+            final String value;
+            final Long size;
+            if (isCollected()) {
+                value = Collected;
+                size = null;
+            } else if (clas.isPrimitive() || clas == String.class || clas.isEnum() || object == null
+                    || object instanceof Number || object instanceof Boolean || object instanceof Character) {
+                value = String.valueOf(object);
+                size = (clas.isPrimitive() || object == null) ? null : ClassInfo.sizeOf(object);
+            } else {
+                value = "@" + System.identityHashCode(object);
+                size = ClassInfo.sizeOf(object);
+            }
+            return new Object[] { name, clas.getSimpleName(), value, size };
+        }
+
+    }
+
+    /**
+     * An entry of a {@link NodeExpander}, neither a field nor an array element so not editable. A subclass so that the
+     * other nodes do not hold the name.
+     */
+    static final class EntryNode extends GenericNode {
+
+        public final String name;
+
+        public EntryNode(Object holder, String name, Class<?> clas, Object object) {
+            super(holder, -1, clas, object);
+            this.name = name;
+        }
+
+        private EntryNode(EntryNode node) {
+            super(node);
+            this.name = node.name;
+        }
+
+        @Override
+        public EntryNode copy() {
+            return new EntryNode(this);
+        }
+
+        @Override
+        protected String getName() {
+            return name;
+        }
+
+        @Override
+        protected String getStatusText() {
+            final int count = getAllChildCount();
+            return (count != 0 ? "(" + count + ") " : "") + name;
+        }
     }
 
     private static class CommandNode extends Node {
 
         public final String text;
-        public final Object command;
+        /** The target node, pointed to the new node of its object by a scoped refresh. */
+        public Object command;
 
         public CommandNode(String text, Object command) {
             this.text = text;
@@ -719,7 +2101,33 @@ public class ObjectEditorWindow {
         }
     }
 
-    private static class TreeRenderer extends Tree.Renderer<Node> {
+    private static class GroupNode extends Node {
+
+        public final Class<?> clas;
+        public final int count;
+
+        public GroupNode(Class<?> clas, int count) {
+            this.clas = clas;
+            this.count = count;
+        }
+
+        @Override
+        public GroupNode copy() {
+            return new GroupNode(clas, count);
+        }
+
+        @Override
+        protected String getString() {
+            return clas.getSimpleName() + " (" + count + ")";
+        }
+
+        @Override
+        protected String getStatusText() {
+            return "(" + count + ") " + clas.getName();
+        }
+    }
+
+    private class TreeRenderer extends Tree.Renderer<Node> {
 
         private final Icon iconPrimitive;
         private final Icon iconObjectNull;
@@ -744,19 +2152,48 @@ public class ObjectEditorWindow {
         @Override
         public void handle(Node node, boolean sel, boolean expanded, boolean leaf, int row, boolean hasFocus) {
 
+            // the other parts are in their own columns
+            if (table != null) setText(String.valueOf(node.getCell(0)));
+
             if (node instanceof MethodNode) {
                 final MethodNode mnode = (MethodNode) node;
 
                 setIcon(mnode.method.getParameterCount() == 0 ? iconMethod : iconMethodSetter);
 
+                if (table == null && isPreviewedGetter(mnode)) {
+                    setText(getText() + " = " + previewGetter(mnode));
+                }
+
             } else if (node instanceof GenericNode) {
                 final GenericNode gnode = (GenericNode) node;
 
+                if (gnode.isCollected()) {
+                    setText(getText() + " " + Collected);
+                    setIcon(iconObjectNull);
+                    return;
+                }
+
+                final Object object = gnode.getObject();
+
+                if (!batch.isEmpty() && gnode.getHolder() != null) {
+                    final EditBatch.Edit edit = batch.get(gnode.getHolder(), gnode.field, gnode.index);
+                    if (edit != null) setText(getText() + " := " + previewText(edit.value));
+                }
+
+                if (table == null && isPreviewedObject(gnode)) {
+                    setText(getText() + " = " + previewObject(gnode));
+                }
+
+                final Monitor monitor = session.monitors.get(gnode);
+                if (monitor != null) {
+                    setText(getText() + " " + monitor.getSparkline() + " " + Monitor.rateText(monitor.getRate()));
+                }
+
                 if (gnode.clas.isPrimitive()) {
                     setIcon(iconPrimitive);
-                } else if (gnode.object == null) {
+                } else if (object == null) {
                     setIcon(iconObjectNull);
-                } else if (gnode.object instanceof Throwable) {
+                } else if (object instanceof Throwable) {
                     setIcon(iconThrowable);
                 } else {
                     setIcon(iconObject);
@@ -764,9 +2201,183 @@ public class ObjectEditorWindow {
 
             } else if (node instanceof CommandNode) {
                 setIcon(iconCommand);
+
+            } else if (node instanceof GroupNode) {
+                setIcon(iconObject);
+            }
+        }
+
+    }
+
+    private boolean isPreviewedGetter(MethodNode node) {
+        return options.contains(Option.PreviewGetters) && node.getChildCount() == 0 && session.isGetter(node.method)
+                && node.getHolder() != null;
+    }
+
+    private String previewGetter(final MethodNode node) {
+        final Object holder = node.getHolder();
+
+        final Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                try {
+                    return previewText(node.method.method.invoke(holder));
+                } catch (final InvocationTargetException e) {
+                    return "(threw " + e.getCause().getClass().getSimpleName() + ")";
+                }
+            }
+        };
+        return session.getterPreviews.get(previewKey(holder, node.method.method), task, previewReady(node));
+    }
+
+    private boolean isPreviewedObject(GenericNode node) {
+        final Object object = node.getObject();
+        if (!options.contains(Option.PreviewToString) || object == null) return false;
+
+        final Class<?> c = object.getClass();
+        return !ObjectGraph.isValueClass(c) && session.overridesToString(c);
+    }
+
+    private String previewObject(GenericNode node) {
+        final Object object = node.getObject();
+        if (object == null) return Collected;
+
+        final Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return previewText(object.toString());
+            }
+        };
+        return session.stringPreviews.get(previewKey(object, null), task, previewReady(node));
+    }
+
+    /**
+     * @return the key of the preview, not keeping the object alive in the weak references mode
+     */
+    private IdentityKey previewKey(Object object, Object discriminator) {
+        if (options.contains(Option.WeakReferences)) return IdentityKey.weak(object, discriminator);
+        return new IdentityKey(object, discriminator);
+    }
+
+    private Runnable previewReady(final Node node) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (table != null) {
+                    table.repaint();
+                } else {
+                    tree.visibleNodeChanged(node);
+                }
+            }
+        };
+    }
+
+    private static final int PreviewMaxLength = 80;
+
+    private static String previewText(Object value) {
+        if (value == null) return "null";
+
+        final boolean plain = value instanceof Number || value instanceof Boolean || value instanceof Character;
+        if (!plain && !ObjectGraph.isValueClass(value.getClass())) return value.getClass().getSimpleName();
+
+        return previewText(value.toString());
+    }
+
+    /**
+     * @return the text in one line and shortened to {@link #PreviewMaxLength}
+     */
+    private static String previewText(String text) {
+        if (text == null) return "null";
+
+        final boolean shortened = text.length() > PreviewMaxLength;
+        if (shortened) text = text.substring(0, PreviewMaxLength);
+
+        final StringBuilder sb = new StringBuilder(text.length() + 3);
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            sb.append(Character.isISOControl(c) ? ' ' : c);
+        }
+        if (shortened) sb.append("...");
+        return sb.toString();
+    }
+
+    // == Table view
+
+    private static final int TableMinRowHeight = 16;
+
+    private class TableColumns implements TreeTable.Columns<Node> {
+
+        @Override
+        public int getCount() {
+            return 4;
+        }
+
+        @Override
+        public String getName(int column) {
+            switch (column) {
+            case 0:
+                return "Type";
+            case 1:
+                return "Value";
+            case 2:
+                return "Shallow size";
+            default:
+                return "Children";
+            }
+        }
+
+        @Override
+        public Class<?> getType(int column) {
+            switch (column) {
+            case 0:
+            case 1:
+                return String.class;
+            case 2:
+                return Long.class;
+            default:
+                return Integer.class;
+            }
+        }
+
+        @Override
+        public Object getValue(Node node, int column) {
+            if (column == 1 && node instanceof MethodNode && isPreviewedGetter((MethodNode) node)) {
+                return previewGetter((MethodNode) node);
+            }
+            if (column == 1 && node instanceof GenericNode && isPreviewedObject((GenericNode) node)) {
+                return previewObject((GenericNode) node);
             }
+            // the children may change when linked
+            if (column == 3) return node.getChildCount() == 0 ? null : node.getChildCount();
+
+            return node.getCell(column + 1);
         }
+    }
 
+    private void setTableView(boolean enabled) {
+        if (enabled == (table != null)) return;
+
+        if (enabled) {
+            final Rectangle bounds = tree.getRowBounds(0);
+            final int rowHeight = Math.max(TableMinRowHeight, bounds == null ? 0 : bounds.height);
+
+            table = new TreeTable<Node>(tree, new TableColumns(), rowHeight);
+            table.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    if (!SwingUtilities.isRightMouseButton(e)) return;
+
+                    final int row = table.rowAtPoint(e.getPoint());
+                    showPopupMenu(table, e.getX(), e.getY(), row < 0 ? null : tree.getPathForRow(row));
+                }
+            });
+            treeView.setViewportView(table);
+
+        } else {
+            table.dispose();
+            table = null;
+            treeView.setViewportView(tree);
+        }
     }
 
     // == Input values
@@ -810,7 +2421,7 @@ public class ObjectEditorWindow {
             return parsers.get(input).parse(text);
 
         } else {
-            final ObjectEditorWindow sub = new ObjectEditorWindow(window, windowObject, input);
+            final ObjectEditorWindow sub = new ObjectEditorWindow(session, window, windowObject, input);
 
             if (sub.returnObject == NoReturnObject) throw new CanceledException();
             return sub.returnObject;
@@ -838,266 +2449,241 @@ public class ObjectEditorWindow {
 
     // == Generate nodes
 
-    private static class NodeMap extends IdentityHashMap<Object, Node> {
-    }
+    static class NodeMap extends IdentityMap<Node> {
 
-    private void generateNodes(GenericNode root) {
-        generateNodes(root, new NodeMap(), new NodeMap(), 0);
+        public NodeMap(int expected) {
+            super(expected);
+        }
     }
 
-    private void generateNodes(GenericNode root, NodeMap parents, NodeMap renodes, int depth) {
-        final Class<?> c = root.clas;
+    private static final String CommandParent = "parent";
+    private static final String CommandReference = "reference";
+    private static final String CommandMore = "more";
 
-        if (c == null || c.isPrimitive()) return;
+    private final Generator generator;
 
-        if (!options.contains(Option.ShowStringInternals)) if (c == String.class) return;
+    /**
+     * Generates the unfiltered nodes of objects with the options of a session.
+     */
+    static final class Generator {
 
-        final Object rootObject = root.object;
-        if (rootObject == null) return;
+        private final Session session;
+        private final EnumSet<Option> options;
+        private final MethodReturns methodReturns;
 
-        if (c.isArray()) {
-            final Class<?> comc = c.getComponentType();
+        public Generator(Session session) {
+            this.session = session;
 
-            final boolean optionShowNullElements = options.contains(Option.ShowNullElements);
+            options = session.options;
+            methodReturns = session.methodReturns;
+        }
 
-            for (int i = 0, n = Array.getLength(rootObject); i < n; i++) {
-                final Object element = Array.get(rootObject, i);
+        /**
+         * Holds the objects of the node weakly in the weak references mode.
+         *
+         * @param holderNode the node of the holder, whose reference is shared, or null
+         */
+        public GenericNode hold(GenericNode node, GenericNode holderNode) {
+            if (options.contains(Option.WeakReferences)) node.weaken(session.weakObjects, holderNode);
+            return node;
+        }
 
-                if (!optionShowNullElements) if (element == null) {
-                    continue;
-                }
+        /**
+         * @return the first node of each object met
+         */
+        public NodeMap generateNodes(GenericNode root) {
+            if (options.contains(Option.WeakReferences)) session.weakenMethodReturns();
 
-                final Class<?> cc = pickClass(comc, element);
+            final Object object = root.getObject();
 
-                final GenericNode node = new GenericNode(rootObject, i, cc, element);
-                root.add(node);
+            final NodeMap renodes = new NodeMap(session.getEstimate(object));
+            generateNodes(root, new NodeMap(0), renodes, 0);
 
-                generateNodesPropagate(node, parents, renodes, depth);
-            }
-            return;
+            if (!options.contains(Option.ShowDuplicates) && object != null) renodes.put(object, root);
+            return renodes;
         }
 
-        final ClassInfo info = ClassInfo.of(c);
-
-        final boolean optionShowFieldsPublic = options.contains(Option.ShowFieldsPublic);
-        final boolean optionShowFieldsNonPublic = options.contains(Option.ShowFieldsNonPublic);
-        final boolean optionShowFieldsTransient = options.contains(Option.ShowFieldsTransient);
-        final boolean optionShowFields = optionShowFieldsNonPublic || optionShowFieldsPublic
-                || optionShowFieldsTransient;
+        public void generateNodes(GenericNode root, NodeMap parents, NodeMap renodes, int depth) {
+            final Class<?> c = root.clas;
 
-        for (final Field field : info.getFields()) {
-
-            Object object;
-            try {
-                object = field.get(rootObject);
-            } catch (final IllegalArgumentException e) {
-                throw new RuntimeException(e);
-            } catch (final IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
+            if (c == null || c.isPrimitive()) return;
 
-            final Class<?> cc = pickClass(field.getType(), object);
+            if (!options.contains(Option.ShowStringInternals)) if (c == String.class) return;
 
-            if (!optionShowFields && (cc.isPrimitive() || object == null)) continue;
-            if (!optionShowFieldsPublic && Modifier.isPublic(field.getModifiers())) continue;
-            if (!optionShowFieldsNonPublic && !Modifier.isPublic(field.getModifiers())) continue;
-            if (!optionShowFieldsTransient && Modifier.isTransient(field.getModifiers())) continue;
+            final Object rootObject = root.getObject();
+            if (rootObject == null) return;
 
-            final GenericNode node = new GenericNode(rootObject, field, cc, object);
-            root.add(node);
+            final Snapshot snapshot = session.getSnapshot();
+            final WeakObjects weakObjects = options.contains(Option.WeakReferences) ? session.weakObjects : null;
 
-            generateNodesPropagate(node, parents, renodes, depth);
-        }
+            if (c.isArray()) {
+                final Class<?> comc = c.getComponentType();
 
-        final boolean optionShowMethodsNonVoid = options.contains(Option.ShowMethodsNonVoid);
-        final boolean optionShowMethodsVoid = options.contains(Option.ShowMethodsVoid);
-        final boolean optionShowMethods = optionShowMethodsNonVoid || optionShowMethodsVoid;
-        final boolean optionShowMethodsWithParams = options.contains(Option.ShowMethodsWithParams);
-        final boolean optionShowObjectInternals = options.contains(Option.ShowObjectInternals);
+                final boolean optionShowNullElements = options.contains(Option.ShowNullElements);
 
-        if (optionShowMethods) for (final MethodInfo method : info.getMethods()) {
+                final Object captured = snapshot == null ? null : snapshot.getArray(rootObject);
+                final Object elements = captured != null ? captured : rootObject;
 
-            if (!optionShowMethodsNonVoid && method.returnType != void.class) continue;
-            if (!optionShowMethodsVoid && method.returnType == void.class) continue;
-            if (!optionShowMethodsWithParams && method.getParameterCount() > 0) continue;
-            if (!optionShowObjectInternals && method.getDeclaringClass() == Object.class) continue;
+                for (int i = 0, n = Array.getLength(elements); i < n; i++) {
+                    final Object element = Array.get(elements, i);
 
-            final MethodNode node = new MethodNode(rootObject, method);
-            root.add(node);
+                    if (!optionShowNullElements) if (element == null) {
+                        continue;
+                    }
 
-            if (methodReturns.containsKey(node)) {
-                final GenericNode returnNode = methodReturns.get(node).copy();
+                    final Class<?> cc = pickClass(comc, element);
 
-                node.add(returnNode);
+                    final GenericNode node = new GenericNode(rootObject, i, cc, element);
+                    if (weakObjects != null) node.weaken(weakObjects, root);
+                    root.add(node);
 
-                generateNodesPropagate(returnNode, parents, renodes, depth);
+                    generateNodesPropagate(node, parents, renodes, depth);
+                }
+                return;
             }
-        }
-    }
-
-    private void generateNodesPropagate(final GenericNode node, NodeMap parents, NodeMap renodes, int depth) {
-        final Class<?> c = node.clas;
-        final Object element = node.object;
-
-        if (c.isPrimitive() || element == null) {
 
-        } else if (parents.containsKey(element)) {
-            node.add(new CommandNode("parent", parents.get(element)));
+            final ClassInfo info = ClassInfo.of(c);
 
-        } else if (renodes.containsKey(element)) {
-            node.add(new CommandNode("reference", renodes.get(element)));
+            final boolean optionShowFieldsPublic = options.contains(Option.ShowFieldsPublic);
+            final boolean optionShowFieldsNonPublic = options.contains(Option.ShowFieldsNonPublic);
+            final boolean optionShowFieldsTransient = options.contains(Option.ShowFieldsTransient);
+            final boolean optionShowFields = optionShowFieldsNonPublic || optionShowFieldsPublic
+                    || optionShowFieldsTransient;
 
-        } else {
-            parents.put(element, node);
-            if (!options.contains(Option.ShowDuplicates)) renodes.put(element, node);
-            generateNodes(node, parents, renodes, depth + 1);
-            parents.remove(element);
-        }
-    }
+            // the snapshots capture only the fields
+            final boolean expanded = snapshot == null && !options.contains(Option.ShowCollectionInternals)
+                    && generateEntries(root, rootObject, parents, renodes, depth, weakObjects);
 
-    private Class<?> pickClass(Class<?> superclass, Object object) {
-        if (superclass.isPrimitive() || object == null) return superclass;
-        return object.getClass();
-    }
+            final Object[] values = snapshot == null ? null : snapshot.getValues(rootObject);
+            int index = 0;
 
-    private static String toDefaultString(Object object) {
-        if (object == null) return "null";
-        return object.getClass().getName() + "@" + System.identityHashCode(object);
-    }
+            if (!expanded) for (final Field field : info.getFields()) {
 
-    // ===
+                final Object object = values != null ? values[index++] : ObjectGraph.get(field, rootObject);
 
-    private static class Tree<T extends Tree.Node> extends JTree {
+                final Class<?> cc = pickClass(field.getType(), object);
 
-        public abstract static class Node extends DefaultMutableTreeNode {
+                if (!optionShowFields && (cc.isPrimitive() || object == null)) continue;
+                if (!optionShowFieldsPublic && Modifier.isPublic(field.getModifiers())) continue;
+                if (!optionShowFieldsNonPublic && !Modifier.isPublic(field.getModifiers())) continue;
+                if (!optionShowFieldsTransient && Modifier.isTransient(field.getModifiers())) continue;
 
-            @Override
-            public abstract String toString();
+                final GenericNode node = new GenericNode(rootObject, field, cc, object);
+                if (weakObjects != null) node.weaken(weakObjects, root);
+                root.add(node);
 
-            public int getAllChildCount() {
-                int sum = getChildCount();
-                if (sum == 0) return 0;
-                for (final Object i : children) {
-                    sum += ((Node) i).getAllChildCount();
-                }
-                return sum;
+                generateNodesPropagate(node, parents, renodes, depth);
             }
 
-        }
-
-        private static abstract class BaseIcon implements Icon {
+            final boolean optionShowMethodsNonVoid = options.contains(Option.ShowMethodsNonVoid);
+            final boolean optionShowMethodsVoid = options.contains(Option.ShowMethodsVoid);
+            final boolean optionShowMethods = optionShowMethodsNonVoid || optionShowMethodsVoid;
+            final boolean optionShowMethodsWithParams = options.contains(Option.ShowMethodsWithParams);
+            final boolean optionShowObjectInternals = options.contains(Option.ShowObjectInternals);
 
-            private final Icon base;
+            if (optionShowMethods) for (final MethodInfo method : info.getMethods()) {
 
-            protected final Color color;
-            protected final boolean fill;
-            protected final int space;
+                if (!optionShowMethodsNonVoid && method.returnType != void.class) continue;
+                if (!optionShowMethodsVoid && method.returnType == void.class) continue;
+                if (!optionShowMethodsWithParams && method.getParameterCount() > 0) continue;
+                if (!optionShowObjectInternals && method.getDeclaringClass() == Object.class) continue;
 
-            public BaseIcon(Icon base, Color color, boolean fill, int space) {
-                this.base = base;
-                this.color = color;
-                this.fill = fill;
-                this.space = space;
-            }
-
-            @Override
-            public int getIconWidth() {
-                return base.getIconWidth();
-            }
-
-            @Override
-            public int getIconHeight() {
-                return base.getIconHeight();
-            }
-        }
-
-        public static class RectangleIcon extends BaseIcon {
+                final MethodNode node = new MethodNode(rootObject, method);
+                if (weakObjects != null) node.weaken(weakObjects, root);
+                root.add(node);
 
-            public RectangleIcon(Icon base, Color color, boolean fill, int space) {
-                super(base, color, fill, space);
-            }
+                final GenericNode methodReturn = methodReturns.get(rootObject, method.method);
+                if (methodReturn != null) {
+                    final GenericNode returnNode = methodReturn.copy();
 
-            @Override
-            public void paintIcon(Component c, Graphics g, int x, int y) {
-                final int side = getIconWidth() - 2 * space;
+                    node.add(returnNode);
 
-                g.setColor(color);
-                if (fill) {
-                    g.fillRect(x + space, y + getIconHeight() / 2 - side / 2, side, side);
-                } else {
-                    g.drawRect(x + space, y + getIconHeight() / 2 - side / 2, side, side);
+                    generateNodesPropagate(returnNode, parents, renodes, depth);
                 }
             }
-
         }
 
-        public static class CircleIcon extends BaseIcon {
-
-            public CircleIcon(Icon base, Color color, boolean fill, int space) {
-                super(base, color, fill, space);
+        /**
+         * Adds the entries of the expander of the object's class, up to the page limit of the object, followed by a
+         * more command if some are left.
+         *
+         * @return false if the class has no expander or it failed, so the fields are shown instead
+         */
+        private boolean generateEntries(GenericNode root, final Object rootObject, NodeMap parents, NodeMap renodes,
+                int depth, WeakObjects weakObjects) {
+
+            final NodeExpander expander = NodeExpanders.of(root.clas);
+            if (expander == null) return false;
+
+            final int limit = session.getPageLimit(rootObject);
+            final ArrayList<EntryNode> nodes = new ArrayList<EntryNode>();
+            final boolean[] more = new boolean[1];
+            try {
+                expander.expand(rootObject, new NodeExpander.Entries() {
+                    @Override
+                    public boolean add(String name, Class<?> type, Object value) {
+                        if (nodes.size() == limit) {
+                            more[0] = true;
+                            return false;
+                        }
+                        nodes.add(new EntryNode(rootObject, name, pickClass(type, value), value));
+                        return true;
+                    }
+                });
+            } catch (final Exception e) {
+                // modified while iterated or not accessible
+                return false;
             }
 
-            @Override
-            public void paintIcon(Component c, Graphics g, int x, int y) {
-                final int side = getIconWidth() - 2 * space;
+            for (final EntryNode node : nodes) {
+                if (weakObjects != null) node.weaken(weakObjects, root);
+                root.add(node);
 
-                g.setColor(color);
-                if (fill) {
-                    g.fillOval(x + space, y + getIconHeight() / 2 - side / 2, side, side);
-                } else {
-                    g.drawOval(x + space, y + getIconHeight() / 2 - side / 2, side, side);
-                }
+                generateNodesPropagate(node, parents, renodes, depth);
             }
+            if (more[0]) root.add(new CommandNode(CommandMore, root));
+            return true;
         }
 
-        public static abstract class Renderer<T extends Node> extends DefaultTreeCellRenderer {
+        public void generateNodesPropagate(final GenericNode node, NodeMap parents, NodeMap renodes, int depth) {
+            final Class<?> c = node.clas;
+            final Object element = node.getObject();
 
-            protected final Icon base;
+            if (c.isPrimitive() || element == null) {
 
-            public Renderer() {
-                super();
-                base = getDefaultClosedIcon();
-            }
+            } else if (parents.containsKey(element)) {
+                node.add(new CommandNode(CommandParent, parents.get(element)));
 
-            @Override
-            @SuppressWarnings("unchecked")
-            public final Component getTreeCellRendererComponent(JTree tree, Object value, boolean sel, boolean expanded,
-                    boolean leaf, int row, boolean hasFocus) {
-                final Component component = super.getTreeCellRendererComponent(tree, value, sel, expanded, leaf, row,
-                        hasFocus);
+            } else if (renodes.containsKey(element)) {
+                final GenericNode renode = (GenericNode) renodes.get(element);
 
-                final T node = (T) value;
-                handle(node, sel, expanded, leaf, row, hasFocus);
+                if (session.isLinked(element)) {
+                    node.link(renode);
+                } else {
+                    node.add(new CommandNode(CommandReference, renode));
+                }
 
-                return component;
+            } else {
+                parents.put(element, node);
+                if (!options.contains(Option.ShowDuplicates)) renodes.put(element, node);
+                generateNodes(node, parents, renodes, depth + 1);
+                parents.remove(element);
             }
-
-            public abstract void handle(T node, boolean sel, boolean expanded, boolean leaf, int row, boolean hasFocus);
-
-        }
-
-        public Tree(T top, Renderer<T> renderer) {
-            super(top);
-            if (renderer != null) setCellRenderer(renderer);
-
-            getSelectionModel().setSelectionMode(TreeSelectionModel.SINGLE_TREE_SELECTION);
-        }
-
-        @SuppressWarnings("unchecked")
-        public T getSelectedNode() {
-            return (T) getLastSelectedPathComponent();
         }
+    }
 
-        @SuppressWarnings("unchecked")
-        public T getNodeAtRow(int index) {
-            return (T) getPathForRow(index).getLastPathComponent();
-        }
+    private static Class<?> pickClass(Class<?> superclass, Object object) {
+        if (superclass.isPrimitive() || object == null) return superclass;
+        return object.getClass();
+    }
 
-        public void selectFirst() {
-            getSelectionModel().setSelectionPath(getPathForRow(0));
-        }
+    static String toDefaultString(Object object) {
+        if (object == null) return "null";
+        return object.getClass().getName() + "@" + System.identityHashCode(object);
     }
 
+    // ===
+
     private static final class CanceledException extends Exception {
 
         public CanceledException() {
@@ -0,0 +1,83 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+
+
+/**
+ * Object graph walking helpers, over the same fields as the tree.
+ *
+ * @author Akritas Akritidis
+ */
+final class ObjectGraph {
+
+    private ObjectGraph() {}
+
+    /** A reference or value held by an object. */
+    public interface Visitor {
+
+        /**
+         * @param field the field of the value or null for array elements
+         * @param index the index of the array element or -1 for fields
+         * @param clas  the runtime class of the value, or the declared class if primitive or null
+         * @param value the value
+         */
+        void visit(Field field, int index, Class<?> clas, Object value);
+    }
+
+    /**
+     * Visits the fields or the array elements of the object.
+     *
+     * @param primitives whether to visit primitive fields and the elements of primitive arrays
+     */
+    public static void forEachChild(Object object, boolean primitives, Visitor visitor) {
+        final Class<?> c = object.getClass();
+
+        if (c.isArray()) {
+            final Class<?> comc = c.getComponentType();
+
+            if (comc.isPrimitive()) {
+                if (!primitives) return;
+
+                for (int i = 0, n = Array.getLength(object); i < n; i++) {
+                    visitor.visit(null, i, comc, Array.get(object, i));
+                }
+            } else {
+                final Object[] array = (Object[]) object;
+
+                for (int i = 0; i < array.length; i++) {
+                    final Object element = array[i];
+                    visitor.visit(null, i, element == null ? comc : element.getClass(), element);
+                }
+            }
+            return;
+        }
+
+        for (final Field field : ClassInfo.of(c).getFields()) {
+            final Class<?> type = field.getType();
+            if (!primitives && type.isPrimitive()) continue;
+
+            final Object value = get(field, object);
+            visitor.visit(field, -1, (type.isPrimitive() || value == null) ? type : value.getClass(), value);
+        }
+    }
+
+    public static Object get(Field field, Object object) {
+        try {
+            return MemberAccess.get(field, object);
+        } catch (final IllegalArgumentException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return whether the tree shows the value of the class next to its name
+     */
+    public static boolean isValueClass(Class<?> c) {
+        return c.isPrimitive() || c == String.class || c.isEnum();
+    }
+
+}
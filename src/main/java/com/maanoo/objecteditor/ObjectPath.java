@@ -0,0 +1,90 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Field;
+
+
+/**
+ * A path of fields and array indices from a root object, sharing its prefix with its parent path.
+ *
+ * @author Akritas Akritidis
+ */
+final class ObjectPath {
+
+    public final ObjectPath parent;
+
+    public final Field field;
+    public final int index;
+
+    public final Class<?> clas;
+    public final Object object;
+
+    private final int depth;
+
+    private ObjectPath(ObjectPath parent, Field field, int index, Class<?> clas, Object object) {
+        this.parent = parent;
+        this.field = field;
+        this.index = index;
+        this.clas = clas;
+        this.object = object;
+
+        depth = parent == null ? 0 : parent.depth + 1;
+    }
+
+    public static ObjectPath root(Object object) {
+        return new ObjectPath(null, null, -1, object.getClass(), object);
+    }
+
+    public ObjectPath child(Field field, int index, Class<?> clas, Object object) {
+        return new ObjectPath(this, field, index, clas, object);
+    }
+
+    /**
+     * @return the number of fields and indices from the root
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the paths from the root to this path, both included
+     */
+    public ObjectPath[] toArray() {
+        final ObjectPath[] array = new ObjectPath[depth + 1];
+
+        ObjectPath i = this;
+        for (int d = depth; d >= 0; d--) {
+            array[d] = i;
+            i = i.parent;
+        }
+        return array;
+    }
+
+    /**
+     * @return whether the field or the index of the node is the same as the last one of the path
+     */
+    public boolean sameStep(Field field, int index) {
+        if (this.field != null) return this.field == field;
+        return field == null && this.index == index;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        append(sb);
+        return sb.toString();
+    }
+
+    private void append(StringBuilder sb) {
+        if (parent == null) return;
+        parent.append(sb);
+
+        if (field != null) {
+            if (parent.parent != null) sb.append(".");
+            sb.append(field.getName());
+        } else {
+            sb.append("[").append(index).append("]");
+        }
+    }
+
+}
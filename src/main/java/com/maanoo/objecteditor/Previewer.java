@@ -0,0 +1,225 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+
+/**
+ * Computes preview texts off the event dispatch thread, each with a time limit, and caches them until cleared. The
+ * computations past their limit are abandoned to their threads, which may never return since not all code stops
+ * when interrupted, and other threads take their place.
+ * <p>
+ * All the methods are called on the event dispatch thread.
+ *
+ * @author Akritas Akritidis
+ */
+final class Previewer {
+
+    public static final String Pending = "...";
+    public static final String TimedOut = "(timed out)";
+
+    private static final int MaxEntries = 10000;
+
+    /** The maximum number of threads left to the abandoned computations, beyond which the computations queue. */
+    private static final int MaxAbandoned = 32;
+
+    /** The time limits of the computations of all the previewers, on a single daemon thread. */
+    private static ScheduledThreadPoolExecutor timeouts;
+
+    static synchronized ScheduledThreadPoolExecutor timeouts() {
+        if (timeouts != null) return timeouts;
+
+        timeouts = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "ObjectEditor preview timeouts");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // the canceled time limits do not keep their computations until due
+        timeouts.setRemoveOnCancelPolicy(true);
+        return timeouts;
+    }
+
+    // ===
+
+    private final String name;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private final long timeout;
+
+    private final LinkedHashMap<Object, String> cache = new LinkedHashMap<Object, String>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, String> eldest) {
+            return size() > MaxEntries;
+        }
+    };
+
+    /** Incremented on clear, so that the results of older computations are ignored. */
+    private int generation;
+
+    /** The abandoned computations still running, guarded by the executor. */
+    private int abandoned;
+
+    /**
+     * @param name    the name of the threads
+     * @param threads the maximum number of concurrent computations
+     * @param timeout the time limit of each computation in milliseconds
+     */
+    public Previewer(final String name, int threads, long timeout) {
+        this.name = name;
+        this.threads = threads;
+        this.timeout = timeout;
+
+        final ThreadFactory factory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+
+        executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param key   the identity of the preview
+     * @param task  computes the preview text, called on a background thread
+     * @param ready called when the text is available
+     * @return the cached text or {@link #Pending}
+     */
+    public String get(final Object key, final Callable<String> task, final Runnable ready) {
+        final String cached = cache.get(key);
+        if (cached != null) return cached;
+
+        cache.put(key, Pending);
+
+        final Computation computation = new Computation(key, task, ready, generation);
+        // the future is set before the computation can start
+        computation.future = new FutureTask<Void>(computation, null);
+        executor.execute(computation.future);
+
+        return Pending;
+    }
+
+    private final class Computation implements Runnable {
+
+        private final Object key;
+        private final Callable<String> task;
+        private final Runnable ready;
+        private final int generation;
+
+        private FutureTask<Void> future;
+
+        private Thread thread;
+        private ScheduledFuture<?> limit;
+        /** Guarded by the executor. */
+        private boolean finished, replaced;
+
+        public Computation(Object key, Callable<String> task, Runnable ready, int generation) {
+            this.key = key;
+            this.task = task;
+            this.ready = ready;
+            this.generation = generation;
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+
+            // the time limit starts when the computation starts, not while queued
+            limit = timeouts().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!future.cancel(true)) return;
+
+                    post(key, TimedOut, generation, ready);
+                    abandon(Computation.this);
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+
+            String text;
+            try {
+                text = task.call();
+            } catch (final Throwable e) {
+                text = "(threw " + e.getClass().getSimpleName() + ")";
+            }
+            finish(this);
+
+            // the timeout posts its own text
+            if (future.isCancelled()) return;
+
+            post(key, text, generation, ready);
+        }
+    }
+
+    /**
+     * Lets an other thread take the place of the thread of the timed out computation, unless already finished.
+     */
+    private void abandon(Computation computation) {
+        synchronized (executor) {
+            if (computation.finished || abandoned == MaxAbandoned) return;
+
+            computation.replaced = true;
+            abandoned++;
+            // growing, the maximum first
+            executor.setMaximumPoolSize(threads + abandoned);
+            executor.setCorePoolSize(threads + abandoned);
+        }
+        computation.thread.setName(name + " (abandoned)");
+    }
+
+    private void finish(Computation computation) {
+        computation.limit.cancel(false);
+
+        synchronized (executor) {
+            computation.finished = true;
+            if (!computation.replaced) return;
+
+            abandoned--;
+            // shrinking, the core first, the extra thread ends once idle
+            executor.setCorePoolSize(threads + abandoned);
+            executor.setMaximumPoolSize(threads + abandoned);
+        }
+        computation.thread.setName(name);
+    }
+
+    private void post(final Object key, final String text, final int generation, final Runnable ready) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != Previewer.this.generation || cache.get(key) != Pending) return;
+
+                cache.put(key, text);
+                ready.run();
+            }
+        });
+    }
+
+    /**
+     * Forgets all the cached texts and the pending computations.
+     */
+    public void clear() {
+        generation++;
+        cache.clear();
+        executor.getQueue().clear();
+    }
+
+}
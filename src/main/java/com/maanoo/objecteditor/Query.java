@@ -0,0 +1,435 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.text.ParseException;
+import java.util.ArrayList;
+
+
+/**
+ * Compiled path query over field names, array indices, wildcards and predicates.
+ * <p>
+ * Syntax: steps separated by dots, each step a field name or {@code *} for all fields, optionally followed by
+ * selectors {@code [3]}, {@code [*]} or {@code [?path op literal]}, for example
+ * {@code table[*].value.connections[?open==false]}. Selectors apply to the elements of arrays, a predicate on a non
+ * array object filters the object itself. The operators are {@code == != < <= > >=} and the literals numbers,
+ * {@code true}, {@code false}, {@code null}, quoted strings or bare words for enum constants.
+ * <p>
+ * Evaluation is lazy and depth first, only the objects along the matching paths are read.
+ *
+ * @author Akritas Akritidis
+ */
+final class Query {
+
+    /** Receives the matching paths. */
+    public interface Sink {
+
+        /**
+         * @return whether to continue the evaluation
+         */
+        boolean found(ObjectPath path);
+    }
+
+    public final String text;
+
+    private final Step first;
+
+    private Query(String text, Step first) {
+        this.text = text;
+        this.first = first;
+    }
+
+    /**
+     * Evaluates the query from the root object.
+     */
+    public void evaluate(Object root, Sink sink) {
+        first.apply(ObjectPath.root(root), sink);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    // == Steps
+
+    private static abstract class Step {
+
+        protected Step next;
+
+        /**
+         * @return whether to continue the evaluation
+         */
+        public abstract boolean apply(ObjectPath at, Sink sink);
+
+        protected final boolean emit(ObjectPath path, Sink sink) {
+            return next == null ? sink.found(path) : next.apply(path, sink);
+        }
+
+        protected final boolean emitElements(ObjectPath at, Sink sink, Predicate predicate) {
+            final Object array = at.object;
+            final Class<?> comc = at.clas.getComponentType();
+
+            for (int i = 0, n = Array.getLength(array); i < n; i++) {
+                final Object element = Array.get(array, i);
+                if (predicate != null && !predicate.test(element)) continue;
+
+                if (!emit(at.child(null, i, pickClass(comc, element), element), sink)) return false;
+            }
+            return true;
+        }
+
+        protected static boolean isObject(ObjectPath at) {
+            return at.object != null && !at.clas.isPrimitive();
+        }
+    }
+
+    /** Field read by name, resolved once per runtime class. */
+    private static final class Accessor {
+
+        private final String name;
+
+        private Class<?> cachedClass;
+        private Field cachedField;
+
+        public Accessor(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the field of the class or null
+         */
+        public Field resolve(Class<?> c) {
+            if (c != cachedClass) {
+                cachedField = c.isArray() ? null : ClassInfo.of(c).getField(name);
+                cachedClass = c;
+            }
+            return cachedField;
+        }
+    }
+
+    private static final class FieldStep extends Step {
+
+        private final Accessor accessor;
+
+        public FieldStep(String name) {
+            accessor = new Accessor(name);
+        }
+
+        @Override
+        public boolean apply(ObjectPath at, Sink sink) {
+            if (!isObject(at)) return true;
+
+            final Field field = accessor.resolve(at.clas);
+            if (field == null) return true;
+
+            final Object value = ObjectGraph.get(field, at.object);
+            return emit(at.child(field, -1, pickClass(field.getType(), value), value), sink);
+        }
+    }
+
+    private static final class AnyFieldStep extends Step {
+
+        @Override
+        public boolean apply(ObjectPath at, Sink sink) {
+            if (!isObject(at)) return true;
+            if (at.clas.isArray()) return emitElements(at, sink, null);
+
+            for (final Field field : ClassInfo.of(at.clas).getFields()) {
+                final Object value = ObjectGraph.get(field, at.object);
+                if (!emit(at.child(field, -1, pickClass(field.getType(), value), value), sink)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class IndexStep extends Step {
+
+        private final int index;
+
+        public IndexStep(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public boolean apply(ObjectPath at, Sink sink) {
+            if (!isObject(at) || !at.clas.isArray()) return true;
+            if (index >= Array.getLength(at.object)) return true;
+
+            final Object element = Array.get(at.object, index);
+            return emit(at.child(null, index, pickClass(at.clas.getComponentType(), element), element), sink);
+        }
+    }
+
+    private static final class ElementsStep extends Step {
+
+        private final Predicate predicate;
+
+        public ElementsStep(Predicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean apply(ObjectPath at, Sink sink) {
+            if (!isObject(at)) return true;
+
+            if (at.clas.isArray()) return emitElements(at, sink, predicate);
+
+            if (predicate != null && !predicate.test(at.object)) return true;
+            return emit(at, sink);
+        }
+    }
+
+    // == Predicates
+
+    private static final int OpEq = 0, OpNe = 1, OpLt = 2, OpLe = 3, OpGt = 4, OpGe = 5;
+    private static final String[] Ops = { "==", "!=", "<=", ">=", "<", ">" };
+    private static final int[] OpCodes = { OpEq, OpNe, OpLe, OpGe, OpLt, OpGt };
+
+    private static final class Predicate {
+
+        private final Accessor[] path;
+        private final int op;
+        private final Object literal;
+        private final String literalText;
+
+        public Predicate(Accessor[] path, int op, Object literal, String literalText) {
+            this.path = path;
+            this.op = op;
+            this.literal = literal;
+            this.literalText = literalText;
+        }
+
+        public boolean test(Object object) {
+            Object value = object;
+            for (final Accessor i : path) {
+                if (value == null) return false;
+
+                final Field field = i.resolve(value.getClass());
+                if (field == null) return false;
+                value = ObjectGraph.get(field, value);
+            }
+            return compare(value);
+        }
+
+        private boolean compare(Object value) {
+            if (literal == null || value == null) {
+                if (op == OpEq) return literal == value;
+                if (op == OpNe) return literal != value;
+                return false;
+            }
+
+            final int cmp;
+            if (literal instanceof Boolean) {
+                if (!(value instanceof Boolean)) return op == OpNe;
+                cmp = ((Boolean) value).compareTo((Boolean) literal);
+
+            } else if (literal instanceof Double && value instanceof Number) {
+                cmp = Double.compare(((Number) value).doubleValue(), (Double) literal);
+
+            } else {
+                final String string;
+                if (value instanceof Enum) {
+                    string = ((Enum<?>) value).name();
+                } else if (ObjectGraph.isValueClass(value.getClass()) || value instanceof Number
+                        || value instanceof Character) {
+                    string = value.toString();
+                } else {
+                    return op == OpNe;
+                }
+                cmp = string.compareTo(literalText);
+            }
+
+            switch (op) {
+            case OpEq:
+                return cmp == 0;
+            case OpNe:
+                return cmp != 0;
+            case OpLt:
+                return cmp < 0;
+            case OpLe:
+                return cmp <= 0;
+            case OpGt:
+                return cmp > 0;
+            default:
+                return cmp >= 0;
+            }
+        }
+    }
+
+    private static Class<?> pickClass(Class<?> superclass, Object object) {
+        if (superclass.isPrimitive() || object == null) return superclass;
+        return object.getClass();
+    }
+
+    // == Parsing
+
+    public static Query compile(String text) throws ParseException {
+        final Parser parser = new Parser(text);
+
+        final ArrayList<Step> steps = new ArrayList<Step>();
+        parser.parseSteps(steps);
+
+        if (steps.isEmpty()) throw new ParseException("empty query", 0);
+        for (int i = 1; i < steps.size(); i++) {
+            steps.get(i - 1).next = steps.get(i);
+        }
+        return new Query(text, steps.get(0));
+    }
+
+    private static final class Parser {
+
+        private final String text;
+        private int pos;
+
+        public Parser(String text) {
+            this.text = text;
+        }
+
+        public void parseSteps(ArrayList<Step> steps) throws ParseException {
+            skipSpaces();
+            if (!peek('[')) parseName(steps);
+            parseSelectors(steps);
+
+            while (skipSpaces() && accept('.')) {
+                parseName(steps);
+                parseSelectors(steps);
+            }
+            if (pos < text.length()) throw error("unexpected '" + text.charAt(pos) + "'");
+        }
+
+        private void parseName(ArrayList<Step> steps) throws ParseException {
+            skipSpaces();
+            if (accept('*')) {
+                steps.add(new AnyFieldStep());
+            } else {
+                steps.add(new FieldStep(identifier()));
+            }
+        }
+
+        private void parseSelectors(ArrayList<Step> steps) throws ParseException {
+            while (skipSpaces() && accept('[')) {
+                skipSpaces();
+
+                if (accept('*')) {
+                    steps.add(new ElementsStep(null));
+                } else if (accept('?')) {
+                    steps.add(new ElementsStep(predicate()));
+                } else {
+                    steps.add(new IndexStep(integer()));
+                }
+
+                skipSpaces();
+                expect(']');
+            }
+        }
+
+        private Predicate predicate() throws ParseException {
+            final ArrayList<Accessor> path = new ArrayList<Accessor>();
+
+            skipSpaces();
+            path.add(new Accessor(identifier()));
+            while (accept('.')) {
+                path.add(new Accessor(identifier()));
+            }
+            skipSpaces();
+
+            int op = -1;
+            for (int i = 0; i < Ops.length; i++) {
+                if (text.startsWith(Ops[i], pos)) {
+                    pos += Ops[i].length();
+                    op = OpCodes[i];
+                    break;
+                }
+            }
+            if (op == -1) throw error("expected an operator");
+
+            skipSpaces();
+            final int start = pos;
+            final Object literal = literal();
+            final String literalText = literal instanceof String ? (String) literal : text.substring(start, pos);
+
+            return new Predicate(path.toArray(new Accessor[path.size()]), op, literal, literalText);
+        }
+
+        private Object literal() throws ParseException {
+            if (peek('\'') || peek('"')) {
+                final char quote = text.charAt(pos++);
+                final int end = text.indexOf(quote, pos);
+                if (end == -1) throw error("unterminated string");
+
+                final String string = text.substring(pos, end);
+                pos = end + 1;
+                return string;
+            }
+
+            final int start = pos;
+            while (pos < text.length() && "]) ".indexOf(text.charAt(pos)) == -1) {
+                pos++;
+            }
+            final String word = text.substring(start, pos);
+            if (word.isEmpty()) throw error("expected a literal");
+
+            if (word.equals("null")) return null;
+            if (word.equals("true")) return Boolean.TRUE;
+            if (word.equals("false")) return Boolean.FALSE;
+            try {
+                return Double.valueOf(word);
+            } catch (final NumberFormatException e) {
+                return word;
+            }
+        }
+
+        private String identifier() throws ParseException {
+            final int start = pos;
+            if (pos < text.length() && Character.isJavaIdentifierStart(text.charAt(pos))) {
+                pos++;
+                while (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            if (start == pos) throw error("expected a name");
+            return text.substring(start, pos);
+        }
+
+        private int integer() throws ParseException {
+            final int start = pos;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) throw error("expected an index, '*' or '?'");
+            try {
+                return Integer.parseInt(text.substring(start, pos));
+            } catch (final NumberFormatException e) {
+                throw error("index too large");
+            }
+        }
+
+        private boolean skipSpaces() {
+            while (pos < text.length() && text.charAt(pos) == ' ') {
+                pos++;
+            }
+            return true;
+        }
+
+        private boolean peek(char c) {
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private boolean accept(char c) {
+            if (!peek(c)) return false;
+            pos++;
+            return true;
+        }
+
+        private void expect(char c) throws ParseException {
+            if (!accept(c)) throw error("expected '" + c + "'");
+        }
+
+        private ParseException error(String message) {
+            return new ParseException(message + " at " + pos, pos);
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.regex.PatternSyntaxException;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.Timer;
+
+
+/**
+ * Window of a background search over the object graph, streaming the found paths.
+ *
+ * @author Akritas Akritidis
+ */
+@SuppressWarnings("serial")
+final class SearchWindow {
+
+    /** Shows a found path. */
+    public interface Listener {
+        void show(ObjectPath path);
+    }
+
+    /** The maximum number of results moved to the list per update. */
+    private static final int UpdateBatch = 1000;
+
+    private final Object root;
+    private final String classPrefix;
+    private final Listener listener;
+
+    private final JDialog window;
+    private final JComboBox<GraphSearch.Mode> mode;
+    private final JTextField text;
+    private final DefaultListModel<ObjectPath> results;
+    private final JList<ObjectPath> list;
+    private final JLabel status;
+    private final Timer timer;
+
+    private GraphSearch search;
+
+    public SearchWindow(Window owner, Object root, String classPrefix, Listener listener) {
+        this.root = root;
+        this.classPrefix = classPrefix;
+        this.listener = listener;
+
+        mode = new JComboBox<GraphSearch.Mode>(GraphSearch.Mode.values());
+
+        text = new JTextField();
+        text.setMargin(new Insets(2, 2, 2, 2));
+        text.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                start();
+            }
+        });
+
+        results = new DefaultListModel<ObjectPath>();
+        list = new JList<ObjectPath>(results);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                    boolean isSelected, boolean cellHasFocus) {
+                final ObjectPath path = (ObjectPath) value;
+
+                final StringBuilder sb = new StringBuilder();
+                sb.append(path).append(" : ").append(path.clas.getSimpleName());
+                if (path.object == null || ObjectGraph.isValueClass(path.clas)) {
+                    sb.append(" = ").append(path.object);
+                }
+                return super.getListCellRendererComponent(list, sb.toString(), index, isSelected, cellHasFocus);
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) showSelected();
+            }
+        });
+        list.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER) showSelected();
+            }
+        });
+
+        status = new JLabel(" ");
+
+        timer = new Timer(100, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                update();
+            }
+        });
+
+        final JPanel top = new JPanel(new BorderLayout());
+        top.add(mode, BorderLayout.WEST);
+        top.add(text, BorderLayout.CENTER);
+
+        window = new JDialog(owner, "Find in graph");
+        window.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                stop();
+            }
+        });
+
+        window.setLayout(new BorderLayout());
+        window.add(top, BorderLayout.NORTH);
+        window.add(new JScrollPane(list), BorderLayout.CENTER);
+        window.add(status, BorderLayout.SOUTH);
+
+        window.setMinimumSize(new Dimension(500, 400));
+
+        window.setLocationRelativeTo(owner);
+        window.setVisible(true);
+    }
+
+    private void start() {
+        stop();
+        results.clear();
+
+        final GraphSearch.Matcher matcher;
+        try {
+            matcher = GraphSearch.matcher((GraphSearch.Mode) mode.getSelectedItem(), text.getText(), classPrefix);
+        } catch (final PatternSyntaxException e) {
+            status.setText(e.getDescription());
+            return;
+        }
+        if (matcher == null) {
+            status.setText("invalid " + mode.getSelectedItem());
+            return;
+        }
+
+        search = new GraphSearch(root, matcher);
+        search.start();
+        timer.start();
+    }
+
+    private void stop() {
+        timer.stop();
+        if (search != null) search.cancel();
+    }
+
+    private void update() {
+        if (search == null) return;
+
+        // read before draining, so that no result is missed when the search just finished
+        final boolean finished = search.isFinished();
+
+        ObjectPath path;
+        for (int i = 0; i < UpdateBatch && (path = search.poll()) != null; i++) {
+            results.addElement(path);
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append("found ").append(search.getResultCount());
+        sb.append(", visited ").append(search.getVisitedCount()).append(" objects");
+        if (search.isLimited()) sb.append(", limit reached");
+        if (!finished) sb.append(", searching...");
+        status.setText(sb.toString());
+
+        if (finished && results.size() == search.getResultCount()) timer.stop();
+    }
+
+    private void showSelected() {
+        final ObjectPath path = list.getSelectedValue();
+        if (path != null) listener.show(path);
+    }
+
+}
@@ -0,0 +1,526 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.swing.SwingUtilities;
+
+import com.maanoo.objecteditor.ClassInfo.MethodInfo;
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+import com.maanoo.objecteditor.ObjectEditorWindow.MethodNode;
+import com.maanoo.objecteditor.ObjectEditorWindow.Node;
+import com.maanoo.objecteditor.ObjectEditorWindow.StringParser;
+
+
+/**
+ * State shared by all the windows opened from one root window: options, parsers, method returns and the generated
+ * nodes of the last traversals.
+ *
+ * @author Akritas Akritidis
+ */
+final class Session {
+
+    enum Option {
+
+        ShowFieldsPublic,
+        ShowFieldsNonPublic,
+        ShowFieldsTransient,
+
+        ShowMethodsVoid,
+        ShowMethodsNonVoid,
+        ShowMethodsWithParams,
+
+        ShowNullElements,
+        ShowObjectInternals,
+        ShowStringInternals,
+        ShowCollectionInternals,
+        ShowDuplicates,
+
+        PreviewGetters,
+        PreviewToString,
+
+        WeakReferences,
+    }
+
+    public final EnumSet<Option> options;
+
+    public final HashMap<Class<?>, StringParser<?>> parsers;
+
+    /** The return nodes and the last calls of the methods, by holder identity. */
+    public final MethodReturns methodReturns;
+
+    /** The names of the methods previewed as getters, besides the ones matching {@link #GetterPattern}. */
+    public final HashSet<String> getters;
+
+    /** The previews of the getters, by holder identity and method. */
+    public final Previewer getterPreviews;
+
+    /** The previews of the toString of the objects, by identity. */
+    public final Previewer stringPreviews;
+
+    /** The weak references of the nodes generated in the {@link Option#WeakReferences} mode. */
+    public final WeakObjects weakObjects;
+
+    /** The monitored values and sizes, kept across the windows. */
+    public final Monitors monitors;
+
+    public Session() {
+
+        options = EnumSet.of(
+                Option.ShowFieldsPublic,
+                Option.ShowFieldsNonPublic,
+                Option.ShowMethodsVoid,
+                Option.ShowMethodsNonVoid);
+
+        parsers = new HashMap<Class<?>, StringParser<?>>();
+        parsers.put(CharSequence.class, new StringParser<CharSequence>() {
+            @Override
+            public CharSequence parse(String text) {
+                return text;
+            }
+        });
+        parsers.put(String.class, parsers.get(CharSequence.class));
+
+        methodReturns = new MethodReturns();
+
+
+        getters = new HashSet<String>();
+        getterPreviews = new Previewer("ObjectEditor getter", GetterThreads, GetterTimeout);
+        stringPreviews = new Previewer("ObjectEditor toString", StringThreads, StringTimeout);
+
+        weakObjects = new WeakObjects();
+
+        monitors = new Monitors();
+    }
+
+    // == Getters
+
+    public static final Pattern GetterPattern = Pattern.compile("(get|is|has)[A-Z].*|size|length|isEmpty");
+
+    private static final int GetterThreads = 4;
+    private static final long GetterTimeout = 1000;
+
+    /**
+     * @return whether the method is considered side effect free and can be called without asking
+     */
+    public boolean isGetter(MethodInfo method) {
+        if (method.getParameterCount() != 0 || method.returnType == void.class) return false;
+
+        final String name = method.getName();
+        return getters.contains(name) || GetterPattern.matcher(name).matches();
+    }
+
+    // == toString
+
+    private static final int StringThreads = 2;
+    private static final long StringTimeout = 1000;
+
+    private final HashMap<Class<?>, Boolean> toStrings = new HashMap<Class<?>, Boolean>();
+
+    /**
+     * @return whether the class declares or inherits a toString other than the one of {@link Object}
+     */
+    public boolean overridesToString(Class<?> c) {
+        Boolean overrides = toStrings.get(c);
+        if (overrides == null) {
+            try {
+                overrides = c.getMethod("toString").getDeclaringClass() != Object.class;
+            } catch (final NoSuchMethodException e) {
+                overrides = false;
+            } catch (final SecurityException e) {
+                overrides = false;
+            }
+            toStrings.put(c, overrides);
+        }
+        return overrides;
+    }
+
+    // == Invocations
+
+    /** The maximum number of calls kept in the history of each method. */
+    public static final int InvocationHistory = 100;
+
+    private final HashMap<Method, ArrayDeque<Invocation>> invocations = new HashMap<Method, ArrayDeque<Invocation>>();
+
+    /**
+     * Records the cost of the call, not its result which is kept only by the return node.
+     */
+    public void recordInvocation(MethodNode node, Invocation invocation) {
+        invocation = invocation.withoutResult();
+        methodReturns.putInvocation(node.getHolder(), node.method.method, invocation,
+                options.contains(Option.WeakReferences));
+
+        ArrayDeque<Invocation> history = invocations.get(node.method.method);
+        if (history == null) {
+            history = new ArrayDeque<Invocation>();
+            invocations.put(node.method.method, history);
+        }
+        if (history.size() == InvocationHistory) history.removeFirst();
+        history.addLast(invocation);
+    }
+
+    /**
+     * @return the last calls of the method, on any object, oldest first
+     */
+    public List<Invocation> getInvocations(Method method) {
+        final ArrayDeque<Invocation> history = invocations.get(method);
+        return history == null ? Collections.<Invocation> emptyList() : new ArrayList<Invocation>(history);
+    }
+
+    // == Traversals
+
+    /**
+     * The unfiltered nodes generated from a root object and the index of the first node of each object met.
+     */
+    static final class Traversal {
+
+        public final GenericNode root;
+        public final IdentityMap<Node> index;
+
+        private final int version;
+
+        private Traversal(GenericNode root, IdentityMap<Node> index, int version) {
+            this.root = root;
+            this.index = index;
+            this.version = version;
+        }
+    }
+
+    /** Incremented whenever the generated nodes may no longer match the objects or the options. */
+    private int version;
+
+    private final IdentityMap<Traversal> traversals = new IdentityMap<Traversal>();
+
+    /**
+     * Marks all the traversals as outdated, after a change of the options or of the objects, and the type index which
+     * may list instances no longer reachable.
+     */
+    public void invalidate() {
+        version++;
+        getterPreviews.clear();
+        stringPreviews.clear();
+        typeIndexStale = true;
+    }
+
+    /**
+     * Marks all the traversals as outdated except the one of the root, whose nodes are updated in place.
+     */
+    public void invalidateExcept(Object root) {
+        final Traversal traversal = getTraversal(root);
+        invalidate();
+        if (traversal != null) putTraversal(root, traversal.root, traversal.index);
+    }
+
+    /**
+     * @return the up to date traversal of the root object or null
+     */
+    public Traversal getTraversal(Object root) {
+        final Traversal traversal = traversals.get(root);
+        return traversal == null || traversal.version != version ? null : traversal;
+    }
+
+    /**
+     * @return an up to date node of the object generated by any traversal or null
+     */
+    public GenericNode findNode(Object object) {
+        final Traversal own = getTraversal(object);
+        if (own != null) return own.root;
+
+        // few traversals exist, one per distinct window root
+        for (final Object root : windowRoots.keys()) {
+            final Traversal traversal = getTraversal(root);
+            if (traversal == null) continue;
+
+            final Node node = traversal.index.get(object);
+            if (node instanceof GenericNode && !((GenericNode) node).isLinked()) return (GenericNode) node;
+        }
+        return null;
+    }
+
+    /**
+     * @return the expected number of distinct objects under the root, from its last traversal
+     */
+    public int getEstimate(Object root) {
+        final Traversal traversal = traversals.get(root);
+        return traversal == null ? 0 : traversal.index.size();
+    }
+
+    public void putTraversal(Object root, GenericNode node, IdentityMap<Node> index) {
+        traversals.put(root, new Traversal(node, index, version));
+    }
+
+    /**
+     * Forgets the traversal of the root, whose index would keep its objects alive.
+     */
+    public void removeTraversal(Object root) {
+        traversals.remove(root);
+    }
+
+    // == Pages
+
+    /** The number of entries of the expanded objects shown at first and added by each more command. */
+    public static final int PageSize = 100;
+
+    private final HashMap<IdentityKey, Integer> pageLimits = new HashMap<IdentityKey, Integer>();
+
+    /**
+     * @return the number of entries shown of the object expanded by a {@link NodeExpander}
+     */
+    public int getPageLimit(Object object) {
+        final Integer limit = pageLimits.get(new IdentityKey(object, null));
+        return limit != null ? limit : PageSize;
+    }
+
+    /**
+     * Shows one more page of the entries of the object, until the object is collected.
+     */
+    public void showMorePage(Object object) {
+        pageLimits.put(IdentityKey.weak(object, null), getPageLimit(object) + PageSize);
+    }
+
+    // == Links
+
+    /** The objects whose references are expanded by sharing the subtree of their first node, until collected. */
+    private final HashSet<IdentityKey> links = new HashSet<IdentityKey>();
+
+    public boolean isLinked(Object object) {
+        return !links.isEmpty() && links.contains(new IdentityKey(object, null));
+    }
+
+    /**
+     * Expands the references to the object by sharing the subtree of its first node, without keeping it alive.
+     */
+    public void link(Object object) {
+        links.add(IdentityKey.weak(object, null));
+    }
+
+    // == Weak references
+
+    /**
+     * Holds weakly the method returns and the calls kept from before the weak references mode.
+     */
+    public void weakenMethodReturns() {
+        methodReturns.weaken(weakObjects);
+    }
+
+    /**
+     * Forgets the method returns and the calls of the collected holders and the collected returned objects, and the
+     * pages and the links of the collected objects.
+     */
+    public void pruneCollected() {
+        methodReturns.pruneCollected();
+        if (typeIndex != null) typeIndex.pruneCollected();
+        for (final Iterator<IdentityKey> i = pageLimits.keySet().iterator(); i.hasNext();) {
+            if (i.next().getObject() == null) i.remove();
+        }
+        for (final Iterator<IdentityKey> i = links.iterator(); i.hasNext();) {
+            if (i.next().getObject() == null) i.remove();
+        }
+    }
+
+    // == Footprints
+
+    private final IdentityMap<Footprint> footprints = new IdentityMap<Footprint>();
+
+    /**
+     * @param footprint the last measured footprint of the window or null to forget it
+     */
+    public void putFootprint(Object window, Footprint footprint) {
+        if (footprint == null) {
+            footprints.remove(window);
+        } else {
+            footprints.put(window, footprint);
+        }
+    }
+
+    /**
+     * @return the sum of the last measured footprints of the open windows
+     */
+    public Footprint getFootprint() {
+        Footprint sum = Footprint.None;
+        for (final Object window : footprints.keys()) {
+            sum = sum.plus(footprints.get(window));
+        }
+        return sum;
+    }
+
+    // == Snapshot
+
+    private Snapshot snapshot;
+
+    /**
+     * @return the capture the nodes are generated from, or null if they are generated from the live objects
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        invalidate();
+    }
+
+    // == Type index
+
+    private TypeIndex typeIndex;
+
+    /** Whether the type index may list instances no longer reachable, since the last {@link #invalidate}. */
+    private boolean typeIndexStale;
+
+    /** The type index being built again on a background thread, or null. */
+    private TypeIndex typeIndexing;
+    /** The objects added while the type index is built again, added to it once built. */
+    private ArrayList<Object> typeIndexPending;
+
+    /**
+     * Builds the index on the first call only, later ones extend it with the root. Once outdated, it is built again on
+     * a background thread and replaces the current one when done, until then the current one is returned.
+     *
+     * @return the index of the instances reachable from the roots of the session, including the given root, and from
+     *         the kept method returns, weak in the weak references mode
+     */
+    public TypeIndex getTypeIndex(Object root) {
+        final boolean weak = options.contains(Option.WeakReferences);
+
+        if (typeIndex == null) {
+            typeIndex = new TypeIndex(weak);
+            for (final Object object : typeIndexRoots()) {
+                typeIndex.add(object);
+            }
+            typeIndexStale = false;
+        }
+        final TypeIndex index = typeIndex;
+        index.add(root);
+
+        if ((typeIndexStale || index.isWeak() != weak) && typeIndexing == null) reindex(weak);
+        return index;
+    }
+
+    private List<Object> typeIndexRoots() {
+        final ArrayList<Object> roots = new ArrayList<Object>();
+        Collections.addAll(roots, windowRoots.keys());
+        roots.addAll(methodReturns.getObjects());
+        return roots;
+    }
+
+    private void reindex(boolean weak) {
+        final TypeIndex index = new TypeIndex(weak);
+        final List<Object> roots = typeIndexRoots();
+
+        typeIndexStale = false;
+        typeIndexing = index;
+        typeIndexPending = new ArrayList<Object>();
+
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (final Object object : roots) {
+                    index.add(object);
+                }
+
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (final Object object : typeIndexPending) {
+                            index.add(object);
+                        }
+                        typeIndex = index;
+                        typeIndexing = null;
+                        typeIndexPending = null;
+                    }
+                });
+            }
+        }, "ObjectEditor type index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds an object that became reachable, by an edit or as a method return, to the type index if built.
+     */
+    public void index(Object object) {
+        if (typeIndex != null) typeIndex.add(object);
+        if (typeIndexPending != null) typeIndexPending.add(object);
+    }
+
+    // == Windows
+
+    private final IdentityMap<Integer> windowRoots = new IdentityMap<Integer>();
+
+    /** The root of the first window. */
+    private Object root;
+
+    public Object getRoot() {
+        return root;
+    }
+
+    public void windowOpened(Object root) {
+        if (this.root == null) this.root = root;
+
+        final Integer count = windowRoots.get(root);
+        windowRoots.put(root, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Releases the traversal of the root when no other window of the session shows it.
+     */
+    public void windowClosed(Object root) {
+        final Integer count = windowRoots.get(root);
+        if (count == null) return;
+
+        if (count > 1) {
+            windowRoots.put(root, count - 1);
+        } else {
+            windowRoots.remove(root);
+            traversals.remove(root);
+        }
+    }
+
+    /** Notified when the children of a node, which may be shown by any window of the session, change. */
+    public interface Listener {
+
+        /** The children were generated again. */
+        void nodeRefreshed(Node node);
+
+        /** The children at the indices, in ascending order, were removed. */
+        void nodesRemoved(Node node, int[] indices, Node[] children);
+    }
+
+    private final ArrayList<Listener> listeners = new ArrayList<Listener>();
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notifies all the windows, so that they drop their layout of the old children of the node.
+     */
+    public void nodeRefreshed(Node node) {
+        for (final Listener listener : new ArrayList<Listener>(listeners)) {
+            listener.nodeRefreshed(node);
+        }
+    }
+
+    /**
+     * Notifies all the windows, so that they drop the rows of the removed children of the node.
+     */
+    public void nodesRemoved(Node node, int[] indices, Node[] children) {
+        for (final Listener listener : new ArrayList<Listener>(listeners)) {
+            listener.nodesRemoved(node, indices, children);
+        }
+    }
+
+}
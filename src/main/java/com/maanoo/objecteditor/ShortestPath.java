@@ -0,0 +1,130 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+
+import javax.swing.SwingUtilities;
+
+
+/**
+ * Background breadth first search of the shortest path of fields and indices from a root to an object.
+ *
+ * @author Akritas Akritidis
+ */
+final class ShortestPath {
+
+    /** Receives the result on the event dispatch thread. */
+    public interface Listener {
+
+        void found(ObjectPath path);
+
+        /**
+         * @param limited whether the search stopped because of the limit, else the object is not reachable
+         */
+        void notFound(int visited, boolean limited);
+    }
+
+    public static final int DefaultMaxVisited = 10000000;
+
+    private final Object root;
+    private final Object target;
+    private final int maxVisited;
+
+    private volatile boolean canceled;
+
+    public ShortestPath(Object root, Object target) {
+        this(root, target, DefaultMaxVisited);
+    }
+
+    public ShortestPath(Object root, Object target, int maxVisited) {
+        this.root = root;
+        this.target = target;
+        this.maxVisited = maxVisited;
+    }
+
+    /**
+     * Starts the search on a background thread, the listener is not called if canceled.
+     */
+    public void start(final Listener listener) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final IdentityMap<Boolean> visited = new IdentityMap<Boolean>();
+                final ObjectPath path = find(visited);
+                if (canceled) return;
+
+                final int count = visited.size();
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (canceled) return;
+
+                        if (path != null) {
+                            listener.found(path);
+                        } else {
+                            listener.notFound(count, count > maxVisited);
+                        }
+                    }
+                });
+            }
+        }, "ObjectEditor shortest path");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void cancel() {
+        canceled = true;
+    }
+
+    /**
+     * Searches on the calling thread.
+     *
+     * @return the shortest path or null if not found, canceled or limited
+     */
+    public ObjectPath find() {
+        return find(new IdentityMap<Boolean>());
+    }
+
+    private ObjectPath find(final IdentityMap<Boolean> visited) {
+        final ObjectPath start = ObjectPath.root(root);
+        if (root == target) return start;
+
+        final ArrayDeque<ObjectPath> queue = new ArrayDeque<ObjectPath>();
+        final ObjectPath[] found = new ObjectPath[1];
+
+        final class Visitor implements ObjectGraph.Visitor {
+
+            ObjectPath current;
+
+            @Override
+            public void visit(Field field, int index, Class<?> clas, Object value) {
+                if (value == null || clas.isPrimitive() || found[0] != null) return;
+                if (visited.put(value, Boolean.TRUE) != null) return;
+
+                if (value == target) {
+                    found[0] = current.child(field, index, clas, value);
+                } else if (clas != String.class) {
+                    queue.add(current.child(field, index, clas, value));
+                }
+            }
+        }
+        final Visitor visitor = new Visitor();
+
+        visited.put(root, Boolean.TRUE);
+        queue.add(start);
+
+        while (!queue.isEmpty() && found[0] == null) {
+            if (canceled || visited.size() > maxVisited) return null;
+
+            visitor.current = queue.poll();
+            try {
+                ObjectGraph.forEachChild(visitor.current.object, false, visitor);
+            } catch (final RuntimeException e) {
+                // unreadable object, skip it
+            }
+        }
+        return found[0];
+    }
+
+}
@@ -0,0 +1,252 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+
+import javax.swing.SwingUtilities;
+
+
+/**
+ * A point in time copy of the field values and the array elements of the objects reachable from roots, read once
+ * per object so that objects mutated by other threads are shown as read.
+ * <p>
+ * The copies of the objects unchanged since a previous capture are shared with it.
+ *
+ * @author Akritas Akritidis
+ */
+final class Snapshot {
+
+    /** Receives the capture on the event dispatch thread. */
+    public interface Listener {
+
+        void captured(Snapshot snapshot);
+    }
+
+    public static final int DefaultMaxObjects = 10000000;
+
+    /** The copy of each captured object, the field values in the order of {@link ClassInfo} or an array. */
+    private final IdentityMap<Object> copies;
+
+    private int shared;
+    private boolean limited;
+    private long duration;
+
+    private Snapshot() {
+        copies = new IdentityMap<Object>();
+    }
+
+    /**
+     * @return whether the objects of the class are not copied since they are immutable
+     */
+    private static boolean isImmutable(Class<?> c) {
+        return c == String.class || c == Integer.class || c == Long.class || c == Double.class || c == Float.class
+                || c == Short.class || c == Byte.class || c == Character.class || c == Boolean.class
+                || c == Class.class;
+    }
+
+    /**
+     * Starts capturing on a background thread.
+     */
+    public static void start(final Object[] roots, final Snapshot previous, final Object lock,
+            final Listener listener) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final Snapshot snapshot = capture(roots, previous, lock, DefaultMaxObjects);
+
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.captured(snapshot);
+                    }
+                });
+            }
+        }, "ObjectEditor capture");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Captures on the calling thread.
+     *
+     * @param previous a previous capture to share the unchanged copies with or null
+     * @param lock     a {@link Lock} to lock, any other object to synchronize on, or null
+     */
+    public static Snapshot capture(Object[] roots, Snapshot previous, Object lock, int maxObjects) {
+        final Snapshot snapshot = new Snapshot();
+
+        final long start = System.nanoTime();
+        if (lock instanceof Lock) {
+            ((Lock) lock).lock();
+            try {
+                snapshot.copyAll(roots, previous, maxObjects);
+            } finally {
+                ((Lock) lock).unlock();
+            }
+        } else if (lock != null) {
+            synchronized (lock) {
+                snapshot.copyAll(roots, previous, maxObjects);
+            }
+        } else {
+            snapshot.copyAll(roots, previous, maxObjects);
+        }
+        snapshot.duration = System.nanoTime() - start;
+
+        return snapshot;
+    }
+
+    private void copyAll(Object[] roots, Snapshot previous, int maxObjects) {
+        final ArrayDeque<Object> queue = new ArrayDeque<Object>();
+
+        for (final Object root : roots) {
+            if (root != null && !copies.containsKey(root)) {
+                copies.put(root, Boolean.TRUE);
+                queue.add(root);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            final Object object = queue.poll();
+
+            Object copy;
+            try {
+                copy = copy(object);
+            } catch (final RuntimeException e) {
+                // unreadable object, read live
+                copies.remove(object);
+                continue;
+            }
+
+            final Object old = previous == null ? null : previous.copies.get(object);
+            if (old != null && isSame(object.getClass(), old, copy)) {
+                copy = old;
+                shared += 1;
+            }
+            copies.put(object, copy);
+
+            final Object[] references = (copy instanceof Object[]) ? (Object[]) copy : null;
+            if (references == null) continue;
+
+            for (final Object value : references) {
+                if (value == null || isImmutable(value.getClass()) || copies.containsKey(value)) continue;
+
+                if (copies.size() >= maxObjects) {
+                    limited = true;
+                    continue;
+                }
+                copies.put(value, Boolean.TRUE);
+                queue.add(value);
+            }
+        }
+    }
+
+    private static Object copy(Object object) {
+        final Class<?> c = object.getClass();
+
+        if (c.isArray()) {
+            final int length = Array.getLength(object);
+            final Object copy = Array.newInstance(c.getComponentType(), length);
+            System.arraycopy(object, 0, copy, 0, length);
+            return copy;
+        }
+
+        final ClassInfo info = ClassInfo.of(c);
+        final Object[] values = new Object[info.getFieldCount()];
+
+        int i = 0;
+        for (final Field field : info.getFields()) {
+            values[i++] = ObjectGraph.get(field, object);
+        }
+        return values;
+    }
+
+    /**
+     * @return whether the copies hold the same values, the same references and the equal primitives
+     */
+    private static boolean isSame(Class<?> c, Object copy1, Object copy2) {
+        if (c.isArray()) {
+            if (!c.getComponentType().isPrimitive()) return isSame((Object[]) copy1, (Object[]) copy2);
+            return Arrays.deepEquals(new Object[] { copy1 }, new Object[] { copy2 });
+        }
+
+        final Object[] values1 = (Object[]) copy1;
+        final Object[] values2 = (Object[]) copy2;
+
+        int i = 0;
+        for (final Field field : ClassInfo.of(c).getFields()) {
+            final Object value1 = values1[i];
+            final Object value2 = values2[i++];
+
+            if (value1 == value2) continue;
+            if (!field.getType().isPrimitive() || !value1.equals(value2)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSame(Object[] array1, Object[] array2) {
+        if (array1.length != array2.length) return false;
+
+        for (int i = 0; i < array1.length; i++) {
+            if (array1[i] != array2[i]) return false;
+        }
+        return true;
+    }
+
+    // ===
+
+    /**
+     * @return whether the object was captured, else it is read live
+     */
+    public boolean contains(Object object) {
+        return copies.containsKey(object);
+    }
+
+    /**
+     * @return the field values of the object in the order of {@link ClassInfo#getFields()} or null if not captured
+     */
+    public Object[] getValues(Object object) {
+        final Object copy = copies.get(object);
+        return (copy instanceof Object[] && !object.getClass().isArray()) ? (Object[]) copy : null;
+    }
+
+    /**
+     * @return the copy of the array or null if not captured
+     */
+    public Object getArray(Object array) {
+        final Object copy = copies.get(array);
+        return (copy != null && copy.getClass() == array.getClass()) ? copy : null;
+    }
+
+    /**
+     * @return the number of captured objects
+     */
+    public int size() {
+        return copies.size();
+    }
+
+    /**
+     * @return the number of copies shared with the previous capture
+     */
+    public int getShared() {
+        return shared;
+    }
+
+    /**
+     * @return whether objects were left out because of the maximum
+     */
+    public boolean isLimited() {
+        return limited;
+    }
+
+    /**
+     * @return the time spent capturing, holding the lock if any, in nanoseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+}
@@ -0,0 +1,213 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+
+/**
+ * The state of the windows on a root class saved in a local file, as a log of records appended while the state
+ * changes and compacted when read.
+ * <p>
+ * Each record is a type byte, a length int and the UTF-8 bytes of its text.
+ *
+ * @author Akritas Akritidis
+ */
+final class StateFile {
+
+    public static final byte Options = 'O';
+    public static final byte Filter = 'F';
+    public static final byte Expanded = 'E';
+    public static final byte Collapsed = 'C';
+    public static final byte Return = 'R';
+
+    /** The separator of the steps of a path. */
+    public static final String PathSeparator = "/";
+
+    private static final int Magic = 0x4F455331;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The directory of the state files or null if the state is not saved. */
+    private static volatile File directory;
+    static {
+        final String property = System.getProperty("objecteditor.state");
+        if (property != null && !property.isEmpty()) directory = new File(property);
+    }
+
+    public static void setDirectory(File directory) {
+        StateFile.directory = directory;
+    }
+
+    /**
+     * @return the state file of the root or null if the state is not saved
+     */
+    public static StateFile of(Object root) {
+        final File directory = StateFile.directory;
+        if (directory == null) return null;
+
+        return new StateFile(new File(directory, root.getClass().getName() + ".state"));
+    }
+
+    /** The state resulting from the records. */
+    public static final class State {
+
+        /** The names of the options or null if not saved. */
+        public String options;
+        /** The filter text or null if not saved. */
+        public String filter;
+
+        public final LinkedHashSet<String> expanded = new LinkedHashSet<String>();
+        public final LinkedHashSet<String> returns = new LinkedHashSet<String>();
+
+        private void apply(byte type, String text) {
+            switch (type) {
+            case Options:
+                options = text;
+                break;
+            case Filter:
+                filter = text;
+                break;
+            case Expanded:
+                expanded.add(text);
+                break;
+            case Collapsed:
+                // the descendants are collapsed with it
+                for (final Iterator<String> i = expanded.iterator(); i.hasNext();) {
+                    final String path = i.next();
+                    if (path.equals(text) || path.startsWith(text + PathSeparator)) i.remove();
+                }
+                break;
+            case Return:
+                returns.add(text);
+                break;
+            default:
+                // unknown record, skip it
+            }
+        }
+    }
+
+    // ===
+
+    private final File file;
+
+    private FileOutputStream output;
+
+    private StateFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the state and rewrites the file with only the records needed for it, then keeps the file open for
+     * appending.
+     *
+     * @return the read state, empty if the file is missing or invalid
+     */
+    public State open() throws IOException {
+        final State state = read();
+
+        final ArrayList<byte[]> records = new ArrayList<byte[]>();
+        if (state.options != null) records.add(record(Options, state.options));
+        if (state.filter != null) records.add(record(Filter, state.filter));
+        for (final String path : state.returns) {
+            records.add(record(Return, path));
+        }
+        for (final String path : state.expanded) {
+            records.add(record(Expanded, path));
+        }
+
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) throw new IOException("cannot create " + parent);
+
+        final File temp = new File(file.getPath() + ".tmp");
+        final FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(ByteBuffer.allocate(4).putInt(Magic).array());
+            for (final byte[] record : records) {
+                out.write(record);
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            // the rename does not replace on some platforms
+            if (!file.delete() || !temp.renameTo(file)) throw new IOException("cannot replace " + file);
+        }
+
+        output = new FileOutputStream(file, true);
+        return state;
+    }
+
+    private State read() throws IOException {
+        final State state = new State();
+        if (!file.isFile()) return state;
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            // read to the heap, a mapping would prevent replacing the file on some platforms until collected
+            final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // until full or the end of the file
+            }
+            buffer.flip();
+
+            if (buffer.remaining() < 4 || buffer.getInt() != Magic) return state;
+
+            while (buffer.hasRemaining()) {
+                final byte type;
+                final byte[] bytes;
+                try {
+                    type = buffer.get();
+                    final int length = buffer.getInt();
+                    if (length < 0 || length > buffer.remaining()) break;
+
+                    bytes = new byte[length];
+                    buffer.get(bytes);
+                } catch (final BufferUnderflowException e) {
+                    // partially written last record
+                    break;
+                }
+                state.apply(type, new String(bytes, UTF8));
+            }
+        } finally {
+            raf.close();
+        }
+        return state;
+    }
+
+    private static byte[] record(byte type, String text) {
+        final byte[] bytes = text.getBytes(UTF8);
+        return ByteBuffer.allocate(5 + bytes.length).put(type).putInt(bytes.length).put(bytes).array();
+    }
+
+    /**
+     * Appends a record, does nothing if the file is not open.
+     */
+    public void append(byte type, String text) throws IOException {
+        if (output == null) return;
+
+        output.write(record(type, text));
+    }
+
+    public void close() {
+        if (output == null) return;
+
+        try {
+            output.close();
+        } catch (final IOException e) {
+            e.printStackTrace();
+        }
+        output = null;
+    }
+
+}
@@ -0,0 +1,444 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import javax.swing.Icon;
+import javax.swing.JTree;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.DefaultTreeCellRenderer;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import javax.swing.tree.TreeSelectionModel;
+
+
+/**
+ * Swing tree over lightweight nodes.
+ *
+ * @author Akritas Akritidis
+ */
+@SuppressWarnings("serial")
+class Tree<T extends Tree.Node> extends JTree {
+
+    /**
+     * Tree node holding only an array backed list of children, the parent of a node is known only from its path.
+     */
+    public abstract static class Node {
+
+        private static final Node[] NoChildren = new Node[0];
+
+        private Node[] children = NoChildren;
+        private int childCount;
+
+        /** The index of the node in the parent it was last added to, nodes may be shared by many parents. */
+        private int indexHint;
+
+        @Override
+        public abstract String toString();
+
+        public int getChildCount() {
+            return childCount;
+        }
+
+        public Node getChildAt(int index) {
+            if (index >= childCount) throw new ArrayIndexOutOfBoundsException(index);
+            return children[index];
+        }
+
+        public int getIndex(Node child) {
+            final int hint = child.indexHint;
+            if (hint < childCount && children[hint] == child) return hint;
+
+            for (int i = 0; i < childCount; i++) {
+                if (children[i] == child) return i;
+            }
+            return -1;
+        }
+
+        public void add(Node child) {
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, Math.max(4, childCount + (childCount >> 1)));
+            }
+            child.indexHint = childCount;
+            children[childCount++] = child;
+        }
+
+        public void setChildAt(int index, Node child) {
+            if (index >= childCount) throw new ArrayIndexOutOfBoundsException(index);
+            child.indexHint = index;
+            children[index] = child;
+        }
+
+        /**
+         * Keeps only the first children, used to compact the children after replacing them in place.
+         */
+        public void setChildCount(int count) {
+            if (count > childCount) throw new IllegalArgumentException();
+            if (count == 0) {
+                children = NoChildren;
+            } else {
+                Arrays.fill(children, count, childCount, null);
+            }
+            childCount = count;
+        }
+
+        public void removeAllChildren() {
+            setChildCount(0);
+        }
+
+        public int getAllChildCount() {
+            int sum = childCount;
+            for (int i = 0; i < childCount; i++) {
+                sum += children[i].getAllChildCount();
+            }
+            return sum;
+        }
+
+    }
+
+    /**
+     * Tree model directly over the {@link Node}s.
+     */
+    public static class Model implements TreeModel {
+
+        private final Node root;
+
+        private final EventListenerList listeners = new EventListenerList();
+
+        public Model(Node root) {
+            this.root = root;
+        }
+
+        @Override
+        public Node getRoot() {
+            return root;
+        }
+
+        @Override
+        public Object getChild(Object parent, int index) {
+            return ((Node) parent).getChildAt(index);
+        }
+
+        @Override
+        public int getChildCount(Object parent) {
+            return ((Node) parent).getChildCount();
+        }
+
+        @Override
+        public boolean isLeaf(Object node) {
+            return ((Node) node).getChildCount() == 0;
+        }
+
+        @Override
+        public int getIndexOfChild(Object parent, Object child) {
+            if (parent == null || child == null) return -1;
+            return ((Node) parent).getIndex((Node) child);
+        }
+
+        @Override
+        public void valueForPathChanged(TreePath path, Object newValue) {}
+
+        @Override
+        public void addTreeModelListener(TreeModelListener l) {
+            listeners.add(TreeModelListener.class, l);
+        }
+
+        @Override
+        public void removeTreeModelListener(TreeModelListener l) {
+            listeners.remove(TreeModelListener.class, l);
+        }
+
+        /**
+         * Notifies that the whole tree has changed.
+         */
+        public void reload() {
+            nodeStructureChanged(new TreePath(root));
+        }
+
+        /**
+         * Notifies that the last node of the path has changed and needs to be measured again.
+         */
+        public void nodeChanged(TreePath path) {
+            final TreePath parentPath = path.getParentPath();
+
+            final TreeModelEvent e;
+            if (parentPath == null) {
+                e = new TreeModelEvent(this, path, null, null);
+            } else {
+                final Object node = path.getLastPathComponent();
+                final int index = getIndexOfChild(parentPath.getLastPathComponent(), node);
+                e = new TreeModelEvent(this, parentPath, new int[] { index }, new Object[] { node });
+            }
+
+            final TreeModelListener[] ls = listeners.getListeners(TreeModelListener.class);
+            for (int i = ls.length - 1; i >= 0; i--) {
+                ls[i].treeNodesChanged(e);
+            }
+        }
+
+        /**
+         * Notifies that the children, at the indices in ascending order, were removed from the last node of the path.
+         */
+        public void nodesRemoved(TreePath path, int[] indices, Object[] children) {
+            final TreeModelEvent e = new TreeModelEvent(this, path, indices, children);
+
+            final TreeModelListener[] ls = listeners.getListeners(TreeModelListener.class);
+            for (int i = ls.length - 1; i >= 0; i--) {
+                ls[i].treeNodesRemoved(e);
+            }
+        }
+
+        /**
+         * Notifies that the subtree under the last node of the path has changed.
+         */
+        public void nodeStructureChanged(TreePath path) {
+            final TreeModelEvent e = new TreeModelEvent(this, path);
+
+            final TreeModelListener[] ls = listeners.getListeners(TreeModelListener.class);
+            for (int i = ls.length - 1; i >= 0; i--) {
+                ls[i].treeStructureChanged(e);
+            }
+        }
+
+    }
+
+    private static abstract class BaseIcon implements Icon {
+
+        private final Icon base;
+
+        protected final Color color;
+        protected final boolean fill;
+        protected final int space;
+
+        public BaseIcon(Icon base, Color color, boolean fill, int space) {
+            this.base = base;
+            this.color = color;
+            this.fill = fill;
+            this.space = space;
+        }
+
+        @Override
+        public int getIconWidth() {
+            return base.getIconWidth();
+        }
+
+        @Override
+        public int getIconHeight() {
+            return base.getIconHeight();
+        }
+    }
+
+    public static class RectangleIcon extends BaseIcon {
+
+        public RectangleIcon(Icon base, Color color, boolean fill, int space) {
+            super(base, color, fill, space);
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            final int side = getIconWidth() - 2 * space;
+
+            g.setColor(color);
+            if (fill) {
+                g.fillRect(x + space, y + getIconHeight() / 2 - side / 2, side, side);
+            } else {
+                g.drawRect(x + space, y + getIconHeight() / 2 - side / 2, side, side);
+            }
+        }
+
+    }
+
+    public static class CircleIcon extends BaseIcon {
+
+        public CircleIcon(Icon base, Color color, boolean fill, int space) {
+            super(base, color, fill, space);
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            final int side = getIconWidth() - 2 * space;
+
+            g.setColor(color);
+            if (fill) {
+                g.fillOval(x + space, y + getIconHeight() / 2 - side / 2, side, side);
+            } else {
+                g.drawOval(x + space, y + getIconHeight() / 2 - side / 2, side, side);
+            }
+        }
+    }
+
+    public static abstract class Renderer<T extends Node> extends DefaultTreeCellRenderer {
+
+        protected final Icon base;
+
+        public Renderer() {
+            super();
+            base = getDefaultClosedIcon();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public final Component getTreeCellRendererComponent(JTree tree, Object value, boolean sel, boolean expanded,
+                boolean leaf, int row, boolean hasFocus) {
+            final Component component = super.getTreeCellRendererComponent(tree, value, sel, expanded, leaf, row,
+                    hasFocus);
+
+            final T node = (T) value;
+            handle(node, sel, expanded, leaf, row, hasFocus);
+
+            return component;
+        }
+
+        public abstract void handle(T node, boolean sel, boolean expanded, boolean leaf, int row, boolean hasFocus);
+
+    }
+
+    /** Whether the expansion events are held back while expanding many paths. */
+    private boolean expandingPaths;
+    /** Whether the expanded descendants are listed in row order, while the ui lays out many expanded paths. */
+    private boolean orderedDescendants;
+
+    public Tree(T top, Renderer<T> renderer) {
+        super(new Model(top));
+        if (renderer != null) setCellRenderer(renderer);
+
+        getSelectionModel().setSelectionMode(TreeSelectionModel.SINGLE_TREE_SELECTION);
+    }
+
+    @Override
+    public Model getModel() {
+        return (Model) super.getModel();
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getSelectedNode() {
+        return (T) getLastSelectedPathComponent();
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getNodeAtRow(int index) {
+        return (T) getPathForRow(index).getLastPathComponent();
+    }
+
+    /**
+     * Notifies that the visible rows of the node need to be measured again.
+     */
+    public void visibleNodeChanged(Node node) {
+        final Rectangle visible = getVisibleRect();
+
+        final int first = getClosestRowForLocation(visible.x, visible.y);
+        final int last = getClosestRowForLocation(visible.x, visible.y + visible.height);
+        if (first < 0) return;
+
+        for (int i = first; i <= last; i++) {
+            final TreePath path = getPathForRow(i);
+            if (path != null && path.getLastPathComponent() == node) getModel().nodeChanged(path);
+        }
+    }
+
+    /**
+     * Collects the collapsed paths under the path, including it, breadth first, so that a limited expansion reveals
+     * the shallower rows first.
+     *
+     * @param maxDepth the number of levels to reveal under the path
+     * @param maxRows  the maximum number of rows to reveal
+     */
+    public List<TreePath> getCollapsedPaths(TreePath path, int maxDepth, int maxRows) {
+        final ArrayList<TreePath> paths = new ArrayList<TreePath>();
+        final int baseCount = path.getPathCount();
+
+        final ArrayDeque<TreePath> queue = new ArrayDeque<TreePath>();
+        queue.add(path);
+
+        int rows = 0;
+        while (!queue.isEmpty()) {
+            final TreePath current = queue.poll();
+            final Node node = (Node) current.getLastPathComponent();
+
+            final int count = node.getChildCount();
+            if (count == 0 || current.getPathCount() - baseCount >= maxDepth) continue;
+
+            if (!isExpanded(current)) {
+                if (rows + count > maxRows) break;
+                rows += count;
+                paths.add(current);
+            }
+
+            for (int i = 0; i < count; i++) {
+                queue.add(current.pathByAddingChild(node.getChildAt(i)));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Expands the paths with a single expansion event of the root, so that the layout is updated once instead of once
+     * per path.
+     */
+    public void expandPaths(List<TreePath> paths) {
+        if (paths.isEmpty()) return;
+
+        expandingPaths = true;
+        try {
+            for (final TreePath path : paths) {
+                setExpandedState(path, true);
+            }
+        } finally {
+            expandingPaths = false;
+        }
+
+        // the ui lays out all the expanded descendants of the event path
+        orderedDescendants = true;
+        try {
+            fireTreeExpanded(new TreePath(getModel().getRoot()));
+        } finally {
+            orderedDescendants = false;
+        }
+    }
+
+    @Override
+    public void fireTreeExpanded(TreePath path) {
+        if (!expandingPaths) super.fireTreeExpanded(path);
+    }
+
+    /**
+     * Lists the expanded descendants in row order, instead of the order of the expanded state table, when laying out
+     * many expanded paths, so that each expansion moves only the few rows after it that are not yet expanded.
+     */
+    @Override
+    public Enumeration<TreePath> getExpandedDescendants(TreePath parent) {
+        if (!orderedDescendants || !isExpanded(parent)) return super.getExpandedDescendants(parent);
+
+        final ArrayList<TreePath> paths = new ArrayList<TreePath>();
+
+        final ArrayDeque<TreePath> stack = new ArrayDeque<TreePath>();
+        stack.push(parent);
+
+        while (!stack.isEmpty()) {
+            final TreePath path = stack.pop();
+            if (path != parent) paths.add(path);
+
+            final Node node = (Node) path.getLastPathComponent();
+            for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                final TreePath child = path.pathByAddingChild(node.getChildAt(i));
+                if (isExpanded(child)) stack.push(child);
+            }
+        }
+        return Collections.enumeration(paths);
+    }
+
+    public void selectFirst() {
+        getSelectionModel().setSelectionPath(getPathForRow(0));
+    }
+}
@@ -0,0 +1,285 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.event.TreeSelectionEvent;
+import javax.swing.event.TreeSelectionListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableCellRenderer;
+
+
+/**
+ * Table over the visible rows of a {@link Tree}, with the tree painted in the first column and other columns computed
+ * from the node of each row.
+ * <p>
+ * The tree keeps the expansion and selection state, the table only shows it. While shown in the table, the tree must
+ * not be shown anywhere else.
+ *
+ * @author Akritas Akritidis
+ */
+@SuppressWarnings("serial")
+class TreeTable<T extends Tree.Node> extends JTable {
+
+    /** The columns after the tree column. */
+    public interface Columns<T> {
+
+        int getCount();
+
+        String getName(int column);
+
+        Class<?> getType(int column);
+
+        Object getValue(T node, int column);
+    }
+
+    private final Tree<T> tree;
+    private final Columns<T> columns;
+
+    private final Model model;
+
+    /** Whether the selection is being copied from the tree, so it is not copied back. */
+    private boolean syncing;
+
+    private final class Model extends AbstractTableModel {
+
+        @Override
+        public int getRowCount() {
+            return tree.getRowCount();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 1 + columns.getCount();
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return column == 0 ? "Name" : columns.getName(column - 1);
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? Object.class : columns.getType(column - 1);
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            final T node = tree.getNodeAtRow(row);
+            return column == 0 ? node : columns.getValue(node, column - 1);
+        }
+    }
+
+    /** Paints the row of the tree. */
+    private final class TreeCell extends JComponent implements TableCellRenderer {
+
+        private int row;
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                boolean hasFocus, int row, int column) {
+            this.row = row;
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            final int height = tree.getRowHeight();
+            tree.setSize(getWidth(), Math.max(1, tree.getRowCount()) * height);
+
+            // the tree only paints the rows in the clip
+            final Graphics tg = g.create();
+            try {
+                tg.translate(0, -row * height);
+                tree.paint(tg);
+            } finally {
+                tg.dispose();
+            }
+        }
+    }
+
+    /**
+     * @param rowHeight the fixed height of the rows, of both the table and the tree
+     */
+    public TreeTable(final Tree<T> tree, Columns<T> columns, int rowHeight) {
+        this.tree = tree;
+        this.columns = columns;
+
+        tree.setRowHeight(rowHeight);
+        tree.setLargeModel(true);
+        setRowHeight(rowHeight);
+
+        model = new Model();
+        setModel(model);
+
+        setShowGrid(false);
+        setFillsViewportHeight(true);
+        setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        getColumnModel().getColumn(0).setCellRenderer(new TreeCell());
+        getColumnModel().getColumn(0).setPreferredWidth(300);
+
+        tree.addTreeExpansionListener(expansionListener);
+        tree.getModel().addTreeModelListener(modelListener);
+        tree.addTreeSelectionListener(treeSelectionListener);
+
+        getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                if (syncing || e.getValueIsAdjusting()) return;
+
+                final int row = getSelectedRow();
+                if (row >= 0) tree.setSelectionRow(row);
+            }
+        });
+
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) return;
+
+                final int row = rowAtPoint(e.getPoint());
+                if (row < 0 || columnAtPoint(e.getPoint()) != 0) return;
+
+                // the expand handle is left of the node
+                final Rectangle bounds = tree.getRowBounds(row);
+                final int x = e.getX() - getCellRect(row, 0, false).x;
+
+                if (e.getClickCount() == 2 || (bounds != null && x < bounds.x)) toggle(row);
+            }
+        });
+
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                final int row = getSelectedRow();
+                if (row < 0) return;
+
+                if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
+                    tree.expandRow(row);
+                    e.consume();
+                } else if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+                    tree.collapseRow(row);
+                    e.consume();
+                }
+            }
+        });
+
+        syncSelection();
+    }
+
+    private final TreeExpansionListener expansionListener = new TreeExpansionListener() {
+        @Override
+        public void treeExpanded(TreeExpansionEvent event) {
+            rowsChanged();
+        }
+
+        @Override
+        public void treeCollapsed(TreeExpansionEvent event) {
+            rowsChanged();
+        }
+    };
+
+    private final TreeModelListener modelListener = new TreeModelListener() {
+        // called before the tree updates its rows
+
+        @Override
+        public void treeNodesChanged(TreeModelEvent e) {
+            rowsChangedLater();
+        }
+
+        @Override
+        public void treeNodesInserted(TreeModelEvent e) {
+            rowsChangedLater();
+        }
+
+        @Override
+        public void treeNodesRemoved(TreeModelEvent e) {
+            rowsChangedLater();
+        }
+
+        @Override
+        public void treeStructureChanged(TreeModelEvent e) {
+            rowsChangedLater();
+        }
+    };
+
+    private final TreeSelectionListener treeSelectionListener = new TreeSelectionListener() {
+        @Override
+        public void valueChanged(TreeSelectionEvent e) {
+            syncSelection();
+        }
+    };
+
+    private boolean rowsChangedPending;
+
+    private void rowsChangedLater() {
+        if (rowsChangedPending) return;
+        rowsChangedPending = true;
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                rowsChangedPending = false;
+                rowsChanged();
+            }
+        });
+    }
+
+    private void rowsChanged() {
+        model.fireTableDataChanged();
+        syncSelection();
+    }
+
+    private void syncSelection() {
+        final int[] rows = tree.getSelectionRows();
+
+        syncing = true;
+        try {
+            if (rows == null || rows.length == 0) {
+                clearSelection();
+            } else if (rows[0] < getRowCount()) {
+                setRowSelectionInterval(rows[0], rows[0]);
+                scrollRectToVisible(getCellRect(rows[0], 0, true));
+            }
+        } finally {
+            syncing = false;
+        }
+    }
+
+    private void toggle(int row) {
+        if (tree.isExpanded(row)) {
+            tree.collapseRow(row);
+        } else {
+            tree.expandRow(row);
+        }
+    }
+
+    /**
+     * Stops following the tree, which is restored to variable row heights.
+     */
+    public void dispose() {
+        tree.removeTreeExpansionListener(expansionListener);
+        tree.getModel().removeTreeModelListener(modelListener);
+        tree.removeTreeSelectionListener(treeSelectionListener);
+
+        tree.setLargeModel(false);
+        tree.setRowHeight(0);
+    }
+
+}
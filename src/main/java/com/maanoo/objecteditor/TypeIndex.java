@@ -0,0 +1,166 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * Index of the reachable instances by runtime class, extended incrementally as new objects are added. Instances that
+ * are no longer reachable stay listed until the index is built again.
+ * <p>
+ * If weak, the instances are not kept alive and the collected ones are dropped when listed or pruned.
+ *
+ * @author Akritas Akritidis
+ */
+final class TypeIndex {
+
+    private final boolean weak;
+
+    /** The indexed objects if not weak. */
+    private final IdentityMap<Boolean> indexed;
+    /** The weak keys of the indexed objects if weak. */
+    private final HashMap<IdentityKey, Boolean> weakIndexed;
+
+    /** The instances, or weak references to them if weak, by class. */
+    private final HashMap<Class<?>, ArrayList<Object>> instances = new HashMap<Class<?>, ArrayList<Object>>();
+
+    public TypeIndex() {
+        this(false);
+    }
+
+    public TypeIndex(boolean weak) {
+        this.weak = weak;
+        indexed = weak ? null : new IdentityMap<Boolean>();
+        weakIndexed = weak ? new HashMap<IdentityKey, Boolean>() : null;
+    }
+
+    public boolean isWeak() {
+        return weak;
+    }
+
+    /**
+     * @return whether the object was not indexed before
+     */
+    private boolean mark(Object object) {
+        if (weak) return weakIndexed.put(IdentityKey.weak(object, null), Boolean.TRUE) == null;
+        return indexed.put(object, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Indexes the object and all the objects reachable from it that are not already indexed.
+     */
+    public void add(Object root) {
+        if (root == null || !mark(root)) return;
+
+        final ArrayDeque<Object> stack = new ArrayDeque<Object>();
+        final ObjectGraph.Visitor visitor = new ObjectGraph.Visitor() {
+            @Override
+            public void visit(Field field, int index, Class<?> clas, Object value) {
+                if (value == null || clas.isPrimitive()) return;
+                if (!mark(value)) return;
+
+                put(value);
+                if (!isLeaf(clas)) stack.push(value);
+            }
+        };
+
+        put(root);
+        if (!isLeaf(root.getClass())) stack.push(root);
+
+        while (!stack.isEmpty()) {
+            try {
+                ObjectGraph.forEachChild(stack.pop(), false, visitor);
+            } catch (final RuntimeException e) {
+                // unreadable object, skip it
+            }
+        }
+    }
+
+    private static boolean isLeaf(Class<?> c) {
+        return c == String.class || (c.isArray() && c.getComponentType().isPrimitive());
+    }
+
+    private void put(Object object) {
+        final Class<?> c = object.getClass();
+
+        ArrayList<Object> list = instances.get(c);
+        if (list == null) {
+            list = new ArrayList<Object>();
+            instances.put(c, list);
+        }
+        list.add(weak ? new WeakReference<Object>(object) : object);
+    }
+
+    public int size() {
+        return weak ? weakIndexed.size() : indexed.size();
+    }
+
+    /**
+     * Drops the collected instances, if weak.
+     */
+    public void pruneCollected() {
+        if (!weak) return;
+
+        for (final Iterator<IdentityKey> i = weakIndexed.keySet().iterator(); i.hasNext();) {
+            if (i.next().getObject() == null) i.remove();
+        }
+        for (final Iterator<ArrayList<Object>> i = instances.values().iterator(); i.hasNext();) {
+            final ArrayList<Object> list = i.next();
+            prune(list);
+            if (list.isEmpty()) i.remove();
+        }
+    }
+
+    private static void prune(ArrayList<Object> list) {
+        int size = 0;
+        for (int i = 0; i < list.size(); i++) {
+            final Object reference = list.get(i);
+            if (((WeakReference<?>) reference).get() != null) list.set(size++, reference);
+        }
+        list.subList(size, list.size()).clear();
+    }
+
+    /**
+     * @return the indexed runtime classes assignable to the target, sorted by name
+     */
+    public List<Class<?>> getClasses(Class<?> target) {
+        final ArrayList<Class<?>> list = new ArrayList<Class<?>>();
+        for (final Class<?> c : instances.keySet()) {
+            if (target.isAssignableFrom(c)) list.add(c);
+        }
+
+        Collections.sort(list, new Comparator<Class<?>>() {
+            @Override
+            public int compare(Class<?> o1, Class<?> o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        return list;
+    }
+
+    /**
+     * @return the indexed instances of exactly the class, without the collected ones if weak
+     */
+    public List<Object> getInstances(Class<?> c) {
+        final ArrayList<Object> list = instances.get(c);
+        if (list == null) return Collections.<Object> emptyList();
+        if (!weak) return Collections.unmodifiableList(list);
+
+        final ArrayList<Object> objects = new ArrayList<Object>(list.size());
+        for (final Object reference : list) {
+            final Object object = ((WeakReference<?>) reference).get();
+            if (object != null) objects.add(object);
+        }
+        if (objects.size() < list.size()) prune(list);
+        return objects;
+    }
+
+}
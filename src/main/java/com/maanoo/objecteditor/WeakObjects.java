@@ -0,0 +1,125 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+
+
+/**
+ * Weak references to the objects shown by the nodes, so that the windows do not keep alive the objects no longer
+ * reachable from their roots.
+ * <p>
+ * The collections are reported to the listeners on the event dispatch thread, coalesced, by a single daemon thread
+ * shared by all the sessions.
+ *
+ * @author Akritas Akritidis
+ */
+final class WeakObjects {
+
+    /** Notified on the event dispatch thread after some of the referenced objects are collected. */
+    public interface Listener {
+
+        void collected();
+    }
+
+    private static final ReferenceQueue<Object> Queue = new ReferenceQueue<Object>();
+
+    private static volatile Thread reaper;
+
+    private static final class Ref extends WeakReference<Object> {
+
+        private final WeakObjects owner;
+
+        public Ref(Object referent, WeakObjects owner) {
+            super(referent, Queue);
+            this.owner = owner;
+        }
+    }
+
+    private static synchronized void startReaper() {
+        if (reaper != null) return;
+
+        reaper = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        ((Ref) Queue.remove()).owner.post();
+                    } catch (final InterruptedException e) {
+                        // keep reaping, the thread lives as long as the vm
+                    }
+                }
+            }
+        }, "ObjectEditor reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    // ===
+
+    private final ArrayList<Listener> listeners = new ArrayList<Listener>();
+
+    /** Whether a notification is posted and not yet delivered. */
+    private final AtomicBoolean posted = new AtomicBoolean();
+
+    /**
+     * @return a weak reference to the object or null if null
+     */
+    public Object wrap(Object object) {
+        if (object == null) return null;
+
+        if (reaper == null) startReaper();
+        return new Ref(object, this);
+    }
+
+    /**
+     * @return whether the value is a reference returned by {@link #wrap}
+     */
+    public static boolean isReference(Object value) {
+        return value instanceof Ref;
+    }
+
+    /**
+     * @param value a reference returned by {@link #wrap} or any other value
+     * @return the referenced object, null if collected, or the value itself if not a reference
+     */
+    public static Object get(Object value) {
+        return value instanceof Ref ? ((Ref) value).get() : value;
+    }
+
+    /**
+     * @param value a reference returned by {@link #wrap} or any other value
+     * @return whether the value is a reference whose object was collected
+     */
+    public static boolean isCollected(Object value) {
+        return value instanceof Ref && ((Ref) value).get() == null;
+    }
+
+    private void post() {
+        if (!posted.compareAndSet(false, true)) return;
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                posted.set(false);
+
+                for (final Listener listener : new ArrayList<Listener>(listeners)) {
+                    listener.collected();
+                }
+            }
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+}
@@ -0,0 +1,48 @@
+// Copyright (c) 2020 Akritas Akritidis, see LICENSE.
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+
+
+/**
+ * Opens the fields and methods of the classes and reads the fields, by reflection, without an exception per member of
+ * the packages not opened to this module.
+ * <p>
+ * The packages of the named modules are open only if listed in the <code>Add-Opens</code> attribute of the jar
+ * manifest or in <code>--add-opens</code> options, the others are used only by their public members.
+ *
+ * @author Akritas Akritidis
+ */
+final class MemberAccess {
+
+    private MemberAccess() {}
+
+    /**
+     * Makes the member accessible if allowed, the packages of modules not opened to this one are not.
+     *
+     * @return whether the member can be used, even if not made accessible
+     */
+    public static boolean open(AccessibleObject member) {
+        try {
+            if (member.trySetAccessible()) return true;
+        } catch (final SecurityException e) {
+            // used only if public
+        }
+        return isPublic((Member) member);
+    }
+
+    private static boolean isPublic(Member member) {
+        return Modifier.isPublic(member.getModifiers()) && Modifier.isPublic(member.getDeclaringClass().getModifiers());
+    }
+
+    /**
+     * @param field a field returned as usable by {@link #open}
+     */
+    public static Object get(Field field, Object object) throws IllegalAccessException {
+        return field.get(object);
+    }
+
+}
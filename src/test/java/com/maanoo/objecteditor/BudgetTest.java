@@ -0,0 +1,179 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+import com.maanoo.objecteditor.ObjectEditorWindow.Generator;
+import com.maanoo.objecteditor.Session.Option;
+
+
+/**
+ * Upper bounds of the allocated bytes, measured by the thread allocation counter when supported, and of the node
+ * counts of the traversal, about twice the measured ones.
+ */
+public class BudgetTest {
+
+    static class Link {
+        Link next;
+        int value;
+    }
+
+    static class Dense {
+        Object[] references;
+    }
+
+    private static final Pattern NoMatch = Pattern.compile("no match");
+
+    private static void assertAllocated(String what, long allocated, long max) {
+        // not supported by the vm
+        if (allocated < 0) return;
+
+        assertTrue(what + " allocated " + allocated + " > " + max, allocated <= max);
+    }
+
+    private static GenericNode node(Object object) {
+        return new GenericNode(null, 0, object.getClass(), object);
+    }
+
+    /**
+     * Generates and filters out all the nodes of the object.
+     *
+     * @return the node count
+     */
+    private static int check(Session session, Object object, long maxGenerateBytes, long maxFilterBytes) {
+        final GenericNode node = node(object);
+
+        // a collection while measuring counts the partly used allocation buffers
+        System.gc();
+        Invocation.Meter meter = new Invocation.Meter();
+        new Generator(session).generateNodes(node);
+        assertAllocated("generateNodes", meter.stop(null, null).allocated, maxGenerateBytes);
+
+        meter = new Invocation.Meter();
+        final ObjectEditorWindow.Node filtered = ObjectEditorWindow.filterNode(node, NoMatch, null);
+        assertAllocated("filterNode", meter.stop(null, null).allocated, maxFilterBytes);
+        assertEquals(0, filtered.getChildCount());
+
+        return node.getAllChildCount();
+    }
+
+    @Test(timeout = 60000)
+    public void objectArray() {
+        final int n = 1000000;
+        final Object[] array = new Object[n];
+        for (int i = 0; i < n; i++) {
+            array[i] = new Object();
+        }
+
+        assertEquals(n, check(new Session(), array, 250L * n, 800L * n));
+    }
+
+    @Test(timeout = 60000)
+    public void primitiveArray() {
+        final int n = 1000000;
+
+        assertEquals(n, check(new Session(), new int[n], 200L * n, 800L * n));
+    }
+
+    @Test(timeout = 60000)
+    public void map() {
+        final int n = 100000;
+        final HashMap<Integer, String> map = new HashMap<Integer, String>();
+        for (int i = 0; i < n; i++) {
+            map.put(i, "value" + i);
+        }
+
+        // the internal buckets, not the entries of the expander
+        final Session session = new Session();
+        session.options.add(Option.ShowFieldsTransient);
+        session.options.add(Option.ShowCollectionInternals);
+
+        final int nodes = check(session, map, 3000L * n, 9000L * n);
+        assertTrue(nodes + " nodes", nodes > n && nodes <= 20 * n);
+    }
+
+    @Test(timeout = 60000)
+    public void deepChain() throws Exception {
+        final int n = 10000;
+        final Link head = new Link();
+        Link link = head;
+        for (int i = 0; i < n; i++) {
+            link.next = new Link();
+            link = link.next;
+        }
+
+        // the traversal recurses once per level
+        final int[] nodes = new int[1];
+        final Throwable[] thrown = new Throwable[1];
+        final Thread thread = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    nodes[0] = check(new Session(), head, 700L * n, 2000L * n);
+                } catch (final Throwable e) {
+                    thrown[0] = e;
+                }
+            }
+        }, "deep chain", 256L << 20);
+        thread.start();
+        thread.join();
+
+        if (thrown[0] instanceof Error) throw (Error) thrown[0];
+        assertNull(thrown[0]);
+        assertEquals(2 * (n + 1), nodes[0]);
+    }
+
+    @Test(timeout = 60000)
+    public void denseCycles() {
+        final int n = 300;
+        final Dense[] dense = new Dense[n];
+        for (int i = 0; i < n; i++) {
+            dense[i] = new Dense();
+        }
+        for (int i = 0; i < n; i++) {
+            dense[i].references = dense.clone();
+        }
+
+        // each object is expanded once and referenced from the others
+        final int nodes = check(new Session(), dense[0], 160L * n * n, 1000L * n * n);
+        assertTrue(nodes + " nodes", nodes <= 2 * n * n + n);
+    }
+
+    @SuppressWarnings("serial")
+    @Test(timeout = 60000)
+    public void classInfo() {
+        // new classes, never loaded by other tests
+        final Object[] objects = { new HashMap<Object, Object>() {}, new ArrayList<Object>() {},
+                new LinkedList<Object>() {}, new TreeMap<Object, Object>() {},
+                new ConcurrentHashMap<Object, Object>() {}, new Thread() {}, new ArrayDeque<Object>() {},
+                new Vector<Object>() {}, new Hashtable<Object, Object>() {}, new LinkedHashMap<Object, Object>() {} };
+
+        Invocation.Meter meter = new Invocation.Meter();
+        for (final Object object : objects) {
+            assertFalse(ClassInfo.isLoaded(object.getClass()));
+            ClassInfo.of(object.getClass());
+        }
+        assertAllocated("ClassInfo.of", meter.stop(null, null).allocated, 200000L * objects.length);
+
+        // cached
+        meter = new Invocation.Meter();
+        for (int i = 0; i < 10000; i++) {
+            ClassInfo.of(objects[i % objects.length].getClass());
+        }
+        assertAllocated("cached ClassInfo.of", meter.stop(null, null).allocated, 10000);
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+
+
+public class ClassHistogramTest {
+
+    @SuppressWarnings("unused")
+    private static class Node {
+
+        private Node next;
+        private final int[] data = new int[10];
+        private final long value;
+
+        public Node(Node next, long value) {
+            this.next = next;
+            this.value = value;
+        }
+    }
+
+    private static HashMap<Class<?>, ClassHistogram.Entry> count(Object root) {
+        final ClassHistogram histogram = new ClassHistogram(root);
+        histogram.run();
+
+        assertTrue(histogram.isFinished());
+        assertFalse(histogram.isLimited());
+
+        final HashMap<Class<?>, ClassHistogram.Entry> entries = new HashMap<Class<?>, ClassHistogram.Entry>();
+        for (final ClassHistogram.Entry entry : histogram.getEntries()) {
+            entries.put(entry.clas, entry);
+        }
+        return entries;
+    }
+
+    @Test
+    public void counts() {
+        final int n = 5000;
+
+        Node head = null;
+        for (int i = 0; i < n; i++) {
+            head = new Node(head, i);
+        }
+        // a cycle and a shared reference are counted once
+        head.next.next = head;
+        final Node[] roots = { head, head, null };
+
+        final HashMap<Class<?>, ClassHistogram.Entry> entries = count(roots);
+
+        assertEquals(3, entries.size());
+        assertEquals(1, entries.get(Node[].class).getCount());
+        assertEquals(2, entries.get(Node.class).getCount());
+        assertEquals(2, entries.get(int[].class).getCount());
+        assertEquals(2, entries.get(Node.class).getInstances().size());
+
+        assertEquals(2 * ClassInfo.sizeOf(new int[10]), entries.get(int[].class).getBytes());
+        assertEquals(2 * ClassInfo.of(Node.class).getInstanceSize(), entries.get(Node.class).getBytes());
+    }
+
+    @Test
+    public void largeGraph() {
+        final int n = 200000;
+
+        final Object[] array = new Object[n];
+        for (int i = 0; i < n; i++) {
+            array[i] = new Node(new Node(null, i), i);
+        }
+
+        final HashMap<Class<?>, ClassHistogram.Entry> entries = count(array);
+
+        assertEquals(2 * n, entries.get(Node.class).getCount());
+        assertEquals(2 * n, entries.get(int[].class).getCount());
+        assertEquals(ClassHistogram.MaxInstances, entries.get(Node.class).getInstances().size());
+    }
+
+    @Test
+    public void sizes() {
+        assertEquals(16, ClassInfo.sizeOf(new Object()));
+        assertEquals(16, ClassInfo.sizeOf(new int[0]));
+        assertEquals(56, ClassInfo.sizeOf(new int[10]));
+        assertEquals(24, ClassInfo.sizeOf(new long[1]));
+        assertEquals(32, ClassInfo.of(Node.class).getInstanceSize());
+    }
+
+}
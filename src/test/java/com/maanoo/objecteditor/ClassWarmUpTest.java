@@ -0,0 +1,56 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class ClassWarmUpTest {
+
+    @SuppressWarnings("unused")
+    private static class Root {
+        private Leaf[][] leaves;
+        private int count;
+    }
+
+    @SuppressWarnings("unused")
+    private static class Leaf {
+        private Root root;
+        private StringBuilder text;
+    }
+
+    @Test
+    public void fieldTypes() {
+        ClassWarmUp.start(Collections.<Class<?>> singletonList(Root.class)).join();
+
+        assertTrue(ClassInfo.isLoaded(Root.class));
+        assertTrue(ClassInfo.isLoaded(Leaf.class));
+        assertTrue(ClassInfo.isLoaded(StringBuilder.class));
+    }
+
+    @Test
+    public void resolve() {
+        assertEquals(Collections.<Class<?>> singletonList(Root.class), ClassWarmUp.resolve(Root.class.getName()));
+
+        // a directory of the class path
+        final List<Class<?>> classes = ClassWarmUp.resolve("com.maanoo.objecteditor");
+        assertTrue(classes.contains(ClassInfo.class));
+        assertTrue(classes.contains(Leaf.class));
+
+        // a jar of the class path
+        assertTrue(ClassWarmUp.resolve("org.junit").contains(Test.class));
+
+        assertTrue(ClassWarmUp.resolve("no.such.name").isEmpty());
+    }
+
+    @Test
+    public void names() {
+        ClassWarmUp.start("org.junit.rules").join();
+
+        assertTrue(ClassInfo.isLoaded(org.junit.rules.TemporaryFolder.class));
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Test;
+
+
+public class EditBatchTest {
+
+    static class Holder {
+        int count = 1;
+        String name = "a";
+        Object[] items = new Object[2];
+    }
+
+    private static Field field(String name) throws Exception {
+        return Holder.class.getDeclaredField(name);
+    }
+
+    @Test
+    public void apply() throws Exception {
+        final Holder holder = new Holder();
+
+        final EditBatch batch = new EditBatch();
+        batch.stage(holder, field("count"), 0, 2);
+        batch.stage(holder, field("name"), 0, "b");
+        batch.stage(holder.items, null, 1, "c");
+        batch.stage(holder, field("count"), 0, 3);
+
+        assertEquals(3, batch.size());
+        assertEquals(1, holder.count);
+        assertTrue(batch.validate().isEmpty());
+
+        batch.apply(null);
+
+        assertEquals(3, holder.count);
+        assertEquals("b", holder.name);
+        assertEquals("c", holder.items[1]);
+        assertTrue(batch.isEmpty());
+    }
+
+    @Test
+    public void invalid() throws Exception {
+        final Holder holder = new Holder();
+
+        final EditBatch batch = new EditBatch();
+        batch.stage(holder, field("name"), 0, "b");
+        batch.stage(holder, field("count"), 0, "two");
+        batch.stage(holder.items, null, 2, "c");
+
+        assertEquals(2, batch.validate().size());
+        try {
+            batch.apply(null);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+        // nothing is applied
+        assertEquals("a", holder.name);
+        assertEquals(3, batch.size());
+    }
+
+    @Test
+    public void locks() throws Exception {
+        final Holder holder = new Holder();
+        final ReentrantLock lock = new ReentrantLock();
+
+        final EditBatch batch = new EditBatch();
+        batch.stage(holder, field("count"), 0, 2);
+        batch.apply(lock);
+
+        assertEquals(2, holder.count);
+        assertFalse(lock.isLocked());
+
+        batch.stage(holder, field("count"), 0, 3);
+        batch.apply(holder);
+
+        assertEquals(3, holder.count);
+    }
+
+    @Test(timeout = 30000)
+    public void lockTimeout() throws Exception {
+        final Holder holder = new Holder();
+        final ReentrantLock lock = new ReentrantLock();
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // held by an other thread until released
+        final Thread owner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lock.lock();
+                synchronized (holder) {
+                    locked.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        // released
+                    }
+                }
+                lock.unlock();
+            }
+        });
+        owner.start();
+        locked.await();
+
+        final EditBatch batch = new EditBatch();
+        batch.stage(holder, field("count"), 0, 2);
+
+        for (final Object held : new Object[] { lock, holder }) {
+            try {
+                batch.apply(held, 100);
+                fail();
+            } catch (final TimeoutException e) {
+                // expected
+            }
+        }
+
+        // nothing is applied, not even once the monitor is released
+        release.countDown();
+        owner.join();
+        Thread.sleep(100);
+        assertEquals(1, holder.count);
+        assertEquals(1, batch.size());
+
+        batch.apply(holder, 100);
+        assertEquals(2, holder.count);
+        assertTrue(batch.isEmpty());
+    }
+
+}
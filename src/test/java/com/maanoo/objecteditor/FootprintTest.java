@@ -0,0 +1,61 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+import com.maanoo.objecteditor.ObjectEditorWindow.Generator;
+import com.maanoo.objecteditor.Session.Option;
+
+
+public class FootprintTest {
+
+    private static GenericNode generate(Session session, Object object) {
+        final GenericNode node = new GenericNode(null, 0, object.getClass(), object);
+        new Generator(session).generateNodes(node);
+        return node;
+    }
+
+    @Test
+    public void objects() {
+        final Object shared = new Object();
+        final Object[] array = { shared, shared, new Object() };
+
+        final Footprint footprint = Footprint.of(generate(new Session(), array));
+
+        // the duplicate element references the first one
+        assertEquals(1 + 3 + 1, footprint.nodes);
+        // the array and the two distinct elements
+        assertEquals(3, footprint.objects);
+        assertEquals(0, footprint.collected);
+        assertTrue(footprint.nodeBytes > 0);
+        assertTrue(footprint.objectBytes >= ClassInfo.sizeOf(array));
+    }
+
+    @Test
+    public void weak() {
+        final Object[] array = { new Object(), new Object() };
+
+        final Session session = new Session();
+        session.options.add(Option.WeakReferences);
+
+        final Footprint footprint = Footprint.of(generate(session, array));
+
+        assertEquals(1 + 2, footprint.nodes);
+        // only the root is held
+        assertEquals(1, footprint.objects);
+    }
+
+    @Test
+    public void plus() {
+        final Footprint footprint = Footprint.of(generate(new Session(), new Object[] { 1, 2 }));
+        final Footprint sum = footprint.plus(footprint);
+
+        assertEquals(2 * footprint.nodes, sum.nodes);
+        assertEquals(2 * footprint.objects, sum.objects);
+        assertEquals(2 * footprint.objectBytes, sum.objectBytes);
+        assertSame(footprint.nodes, Footprint.None.plus(footprint).nodes);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+
+public class GraphWalkerTest {
+
+    /** Counts the reachable arrays. */
+    private static final class Counting extends GraphWalker<Object> {
+
+        final AtomicInteger walked = new AtomicInteger();
+
+        Counting(int maxVisited) {
+            super(maxVisited);
+        }
+
+        void run(Object root) {
+            firstVisit(root);
+
+            final Worker first = newWorker();
+            first.push(root);
+            walk(first);
+        }
+
+        @Override
+        protected Worker newWorker() {
+            return new Worker() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void walk(Object object) {
+                    walked.incrementAndGet();
+                    ObjectGraph.forEachChild(object, false, this);
+                }
+
+                @Override
+                public void visit(Field field, int index, Class<?> clas, Object value) {
+                    if (value != null && firstVisit(value)) push(value);
+                }
+            };
+        }
+    }
+
+    /**
+     * @return a root array of wide arrays, sharing every other element, so that the workers split
+     */
+    private static Object[] graph(int width) {
+        final Object[] shared = new Object[0];
+
+        final Object[] root = new Object[width];
+        for (int i = 0; i < width; i++) {
+            final Object[] child = new Object[width];
+            for (int j = 0; j < width; j++) {
+                child[j] = j % 2 == 0 ? shared : new Object[0];
+            }
+            root[i] = child;
+        }
+        return root;
+    }
+
+    @Test
+    public void once() {
+        final int width = 1000;
+
+        final Counting walker = new Counting(Integer.MAX_VALUE);
+        walker.run(graph(width));
+
+        assertTrue(walker.isFinished());
+        assertFalse(walker.isLimited());
+
+        // the root, its children, the shared array and the other half of the grandchildren
+        final int expected = 1 + width + 1 + width * width / 2;
+        assertEquals(expected, walker.walked.get());
+        assertEquals(expected, walker.getVisitedCount());
+    }
+
+    @Test
+    public void limited() {
+        final Counting walker = new Counting(100);
+        walker.run(graph(100));
+
+        assertTrue(walker.isFinished());
+        assertTrue(walker.isLimited());
+        assertTrue(walker.walked.get() <= 100);
+    }
+
+}
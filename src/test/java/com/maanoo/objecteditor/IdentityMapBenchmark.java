@@ -0,0 +1,78 @@
+package com.maanoo.objecteditor;
+
+import java.util.IdentityHashMap;
+
+
+/**
+ * Memory and time comparison of {@link IdentityMap} against {@link IdentityHashMap}, not part of the test run.
+ */
+public class IdentityMapBenchmark {
+
+    private static final int Count = 5000000;
+
+    public static void main(String[] args) {
+
+        final Object[] keys = new Object[Count];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Object();
+        }
+
+        for (int round = 0; round < 3; round++) {
+            System.out.println("== round " + round);
+
+            measure("IdentityHashMap", new Runnable() {
+                @Override
+                public void run() {
+                    final IdentityHashMap<Object, Object> map = new IdentityHashMap<Object, Object>();
+                    for (final Object i : keys) map.put(i, i);
+                    retain(map);
+                }
+            });
+            measure("IdentityMap", new Runnable() {
+                @Override
+                public void run() {
+                    final IdentityMap<Object> map = new IdentityMap<Object>();
+                    for (final Object i : keys) map.put(i, i);
+                    retain(map);
+                }
+            });
+            measure("IdentityMap presized", new Runnable() {
+                @Override
+                public void run() {
+                    final IdentityMap<Object> map = new IdentityMap<Object>(keys.length);
+                    for (final Object i : keys) map.put(i, i);
+                    retain(map);
+                }
+            });
+        }
+    }
+
+    private static Object retained;
+
+    private static void retain(Object object) {
+        retained = object;
+    }
+
+    private static void measure(String name, Runnable runnable) {
+        retained = null;
+        final long before = usedMemory();
+
+        final long start = System.nanoTime();
+        runnable.run();
+        final long time = System.nanoTime() - start;
+
+        final long after = usedMemory();
+        retained = null;
+
+        System.out.printf("%-24s %6d ms %8d KB%n", name, time / 1000000, (after - before) / 1024);
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
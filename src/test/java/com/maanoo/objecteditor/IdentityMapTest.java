@@ -0,0 +1,73 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.IdentityHashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+public class IdentityMapTest {
+
+    @Test
+    public void identityKeys() throws Exception {
+
+        final IdentityMap<String> map = new IdentityMap<String>();
+
+        final String key1 = new String("key");
+        final String key2 = new String("key");
+
+        map.put(key1, "value1");
+        map.put(key2, "value2");
+
+        assertEquals(2, map.size());
+        assertEquals("value1", map.get(key1));
+        assertEquals("value2", map.get(key2));
+        assertNull(map.get("key"));
+    }
+
+    @Test
+    public void presize() throws Exception {
+
+        final IdentityMap<Object> map = new IdentityMap<Object>(1000);
+        final int capacity = map.capacity();
+
+        for (int i = 0; i < 1000; i++) {
+            map.put(new Object(), null);
+        }
+
+        assertEquals(1000, map.size());
+        assertEquals(capacity, map.capacity());
+    }
+
+    @Test
+    public void randomOperations() throws Exception {
+
+        final IdentityMap<Integer> map = new IdentityMap<Integer>();
+        final IdentityHashMap<Object, Integer> expected = new IdentityHashMap<Object, Integer>();
+
+        final Object[] keys = new Object[500];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Object();
+        }
+
+        final Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            final Object key = keys[random.nextInt(keys.length)];
+
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (final Object key : keys) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+}
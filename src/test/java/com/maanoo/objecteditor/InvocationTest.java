@@ -0,0 +1,94 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.maanoo.objecteditor.ClassInfo.MethodInfo;
+import com.maanoo.objecteditor.ClassInfo.MethodInfo.ParameterProvider;
+
+
+public class InvocationTest {
+
+    public static byte[] allocate(int size) {
+        return new byte[size];
+    }
+
+    public static void fail(String message) {
+        throw new IllegalStateException(message);
+    }
+
+    private static ParameterProvider arguments(final Object... values) {
+        return new ParameterProvider() {
+            private int index;
+
+            @Override
+            public Object get(Class<?> c, String name) throws Exception {
+                return values[index++];
+            }
+        };
+    }
+
+    private static MethodInfo method(String name) throws Exception {
+        return new MethodInfo(InvocationTest.class.getMethod(name, name.equals("allocate") ? int.class : String.class));
+    }
+
+    @Test
+    public void returned() throws Exception {
+
+        final Invocation invocation = method("allocate").call(null, arguments(1 << 20));
+
+        assertNull(invocation.thrown);
+        assertEquals(1 << 20, ((byte[]) invocation.getResult()).length);
+        assertTrue(invocation.wallTime >= 0);
+        if (invocation.allocated >= 0) assertTrue(invocation.allocated >= 1 << 20);
+    }
+
+    @Test
+    public void thrown() throws Exception {
+
+        final Invocation invocation = method("fail").call(null, arguments("message"));
+
+        assertNotNull(invocation.thrown);
+        assertSame(invocation.thrown, invocation.getResult());
+        assertEquals(IllegalStateException.class, invocation.getCause().getClass());
+        assertTrue(invocation.toString().contains("threw"));
+    }
+
+    @Test
+    public void summary() throws Exception {
+
+        final Invocation first = method("allocate").call(null, arguments(10));
+        final Invocation second = method("fail").call(null, arguments("message"));
+
+        assertEquals("no calls", Invocation.summary(Arrays.<Invocation> asList()));
+        assertTrue(Invocation.summary(Arrays.asList(first, second)).startsWith("2 calls"));
+        assertTrue(Invocation.summary(Arrays.asList(first, second)).contains("threw 1"));
+    }
+
+    @Test
+    public void cpuTimeDisabled() throws Exception {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!threads.isCurrentThreadCpuTimeSupported()) return;
+
+        final boolean enabled = threads.isThreadCpuTimeEnabled();
+        try {
+            threads.setThreadCpuTimeEnabled(false);
+
+            final Invocation invocation = method("allocate").call(null, arguments(10));
+            assertEquals(-1, invocation.cpuTime);
+            assertFalse(invocation.toString().contains("cpu"));
+            assertFalse(Invocation.summary(Arrays.asList(invocation)).contains("cpu"));
+
+            // left as the user set it
+            assertFalse(threads.isThreadCpuTimeEnabled());
+        } finally {
+            threads.setThreadCpuTimeEnabled(enabled);
+        }
+    }
+
+}
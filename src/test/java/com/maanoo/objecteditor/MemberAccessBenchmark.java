@@ -0,0 +1,65 @@
+package com.maanoo.objecteditor;
+
+import java.lang.reflect.AccessibleObject;
+import java.util.ArrayList;
+
+
+/**
+ * Time comparison of {@link MemberAccess#open} against {@link AccessibleObject#setAccessible} with the exception of the
+ * members not open caught, not part of the test run. Compares the version of Java 17 and later only when run from the
+ * multi-release jar, for example with
+ * <code>java -cp target/objecteditor-0.1.0.jar:target/test-classes com.maanoo.objecteditor.MemberAccessBenchmark</code>.
+ */
+public class MemberAccessBenchmark {
+
+    private static final int Repeats = 200;
+
+    /** Classes of packages not open without <code>--add-opens</code> options. */
+    private static final Class<?>[] Classes = { String.class, Thread.class, java.util.HashMap.class,
+            java.util.concurrent.ConcurrentHashMap.class, java.time.LocalDate.class, java.io.File.class };
+
+    public static void main(String[] args) {
+
+        final ArrayList<AccessibleObject> members = new ArrayList<AccessibleObject>();
+        for (final Class<?> c : Classes) {
+            for (final AccessibleObject i : c.getDeclaredFields()) members.add(i);
+            for (final AccessibleObject i : c.getDeclaredMethods()) members.add(i);
+        }
+
+        System.out.println(MemberAccess.class.getProtectionDomain().getCodeSource().getLocation());
+        System.out.println(members.size() + " members");
+
+        for (int round = 0; round < 5; round++) {
+            System.out.println("== round " + round);
+
+            long start = System.nanoTime();
+            int opened = 0;
+            for (int r = 0; r < Repeats; r++) {
+                for (final AccessibleObject member : members) {
+                    try {
+                        member.setAccessible(true);
+                        opened++;
+                    } catch (final RuntimeException e) {
+                        // not open
+                    }
+                }
+            }
+            print("setAccessible", System.nanoTime() - start, members.size(), opened);
+
+            start = System.nanoTime();
+            opened = 0;
+            for (int r = 0; r < Repeats; r++) {
+                for (final AccessibleObject member : members) {
+                    if (MemberAccess.open(member)) opened++;
+                }
+            }
+            print("MemberAccess.open", System.nanoTime() - start, members.size(), opened);
+        }
+    }
+
+    private static void print(String name, long time, int members, int opened) {
+        System.out.printf("%-24s %6d ms %8.1f ns/member (%d usable)%n", name, time / 1000000,
+                (double) time / members / Repeats, opened / Repeats);
+    }
+
+}
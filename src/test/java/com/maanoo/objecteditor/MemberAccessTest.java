@@ -0,0 +1,75 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+
+public class MemberAccessTest {
+
+    static class Holder {
+
+        private long count = 3;
+        private final String text = "text";
+        private Holder next;
+    }
+
+    private static Field field(String name) throws Exception {
+        final Field field = Holder.class.getDeclaredField(name);
+        assertTrue(MemberAccess.open(field));
+        return field;
+    }
+
+    @Test
+    public void get() throws Exception {
+        final Holder holder = new Holder();
+        holder.next = new Holder();
+
+        assertEquals(3L, MemberAccess.get(field("count"), holder));
+        assertEquals("text", MemberAccess.get(field("text"), holder));
+        assertSame(holder.next, MemberAccess.get(field("next"), holder));
+        assertNull(MemberAccess.get(field("next"), holder.next));
+
+        holder.count = 4;
+        assertEquals(4L, MemberAccess.get(field("count"), holder));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherClass() throws Exception {
+        MemberAccess.get(field("count"), "text");
+    }
+
+    @Test
+    public void unopened() {
+        // not opened to the tests on Java 9 and later, the fields are left out and the size still estimated
+        final ClassInfo info = ClassInfo.of(LocalDate.class);
+        assertTrue(info.getInstanceSize() > 16);
+
+        for (final Field field : info.getFields()) {
+            assertNotNull(ObjectGraph.get(field, LocalDate.of(2020, 1, 1)));
+        }
+    }
+
+    @Test
+    public void multiRelease() throws Exception {
+        final String version = System.getProperty("java.specification.version");
+        final boolean java17 = !version.startsWith("1.") && Integer.parseInt(version) >= 17;
+        final boolean jar = MemberAccess.class.getProtectionDomain().getCodeSource().getLocation().getPath()
+                .endsWith(".jar");
+
+        // the class file version of the loaded class, 61 for the one of META-INF/versions/17
+        final DataInputStream in = new DataInputStream(MemberAccess.class.getResourceAsStream("MemberAccess.class"));
+        try {
+            in.readInt();
+            in.readUnsignedShort();
+            assertEquals(java17 && jar, in.readUnsignedShort() >= 61);
+        } finally {
+            in.close();
+        }
+    }
+
+}
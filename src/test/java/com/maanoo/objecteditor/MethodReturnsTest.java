@@ -0,0 +1,122 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+
+
+public class MethodReturnsTest {
+
+    static class Holder {
+
+        @Override
+        public int hashCode() {
+            throw new AssertionError("hashCode called");
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            throw new AssertionError("equals called");
+        }
+    }
+
+    private static final Method Size;
+    private static final Method ToString;
+    static {
+        try {
+            Size = ArrayList.class.getMethod("size");
+            ToString = Object.class.getMethod("toString");
+        } catch (final NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static GenericNode node(Object object) {
+        return new GenericNode(null, -1, object.getClass(), object);
+    }
+
+    @Test
+    public void identity() {
+        final MethodReturns returns = new MethodReturns();
+
+        final ArrayList<Object> list = new ArrayList<Object>();
+        final GenericNode node = node(0);
+        returns.put(list, Size, node, false);
+
+        // found after the holder changes, not found for an equal holder
+        list.add("a");
+        assertSame(node, returns.get(list, Size));
+        assertNull(returns.get(new ArrayList<Object>(list), Size));
+        assertNull(returns.get(list, ToString));
+
+        final Holder holder = new Holder();
+        returns.put(holder, ToString, node("text"), false);
+        assertNotNull(returns.get(holder, ToString));
+        assertNull(returns.get(new Holder(), ToString));
+    }
+
+    @Test
+    public void invocations() {
+        final MethodReturns returns = new MethodReturns();
+        final Object holder = new ArrayList<Object>();
+
+        assertNull(returns.getInvocation(holder, Size));
+        assertNull(returns.getInvocation(null, Size));
+
+        final Invocation invocation = new Invocation.Meter().stop(null, null);
+        returns.putInvocation(holder, Size, invocation, false);
+        returns.put(holder, Size, node(0), false);
+
+        assertSame(invocation, returns.getInvocation(holder, Size));
+        assertNotNull(returns.get(holder, Size));
+        assertEquals(1, returns.size());
+    }
+
+    @Test
+    public void evictByCount() {
+        final MethodReturns returns = new MethodReturns();
+
+        final Object first = new Object();
+        returns.put(first, ToString, node("first"), false);
+
+        final Object[] holders = new Object[MethodReturns.MaxEntries];
+        for (int i = 0; i < holders.length; i++) {
+            holders[i] = new Object();
+            returns.put(holders[i], ToString, node("text"), false);
+
+            // recently used, kept
+            if (i == 0) assertNotNull(returns.get(first, ToString));
+        }
+
+        assertEquals(MethodReturns.MaxEntries, returns.size());
+        assertNotNull(returns.get(first, ToString));
+        assertNull(returns.get(holders[0], ToString));
+        assertNotNull(returns.get(holders[1], ToString));
+    }
+
+    @Test
+    public void evictBySize() {
+        final MethodReturns returns = new MethodReturns();
+
+        final int length = (int) (MethodReturns.MaxBytes / 3);
+        final Object[] holders = new Object[3];
+        for (int i = 0; i < holders.length; i++) {
+            holders[i] = new Object();
+            returns.put(holders[i], ToString, node(new byte[length]), false);
+        }
+
+        assertEquals(2, returns.size());
+        assertTrue(returns.getBytes() <= MethodReturns.MaxBytes);
+        assertNull(returns.get(holders[0], ToString));
+
+        // a single larger entry is kept
+        returns.put(holders[0], ToString, node(new byte[2 * length]), false);
+        assertNotNull(returns.get(holders[0], ToString));
+    }
+
+}
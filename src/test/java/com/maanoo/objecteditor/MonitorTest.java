@@ -0,0 +1,226 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+
+
+public class MonitorTest {
+
+    static class Counter {
+
+        long count;
+        Integer boxed = 0;
+        boolean flag;
+        String text = "";
+    }
+
+    private static GenericNode field(Object holder, String name) throws Exception {
+        return new GenericNode(holder, holder.getClass().getDeclaredField(name),
+                holder.getClass().getDeclaredField(name).getType(), null);
+    }
+
+    private static GenericNode node(Object object) {
+        return new GenericNode(null, -1, object.getClass(), object);
+    }
+
+    @Test
+    public void field() throws Exception {
+        final Counter counter = new Counter();
+        final Monitor monitor = Monitor.of(field(counter, "count"));
+
+        for (int i = 0; i < 5; i++) {
+            counter.count = i * 10;
+            monitor.sample(i * 500_000_000L);
+        }
+        assertEquals(40, monitor.getLast(), 0);
+        assertEquals(20, monitor.getRate(), 1e-9);
+        assertEquals("▁▃▅▆█", monitor.getSparkline());
+        assertEquals("+20.00/s", Monitor.rateText(monitor.getRate()));
+
+        counter.boxed = 7;
+        final Monitor boxed = Monitor.of(field(counter, "boxed"));
+        boxed.sample(0);
+        assertEquals(7, boxed.getLast(), 0);
+
+        assertNull(Monitor.of(field(counter, "flag")));
+        assertNull(Monitor.of(field(counter, "text")));
+    }
+
+    @Test
+    public void element() {
+        final int[] array = { 3, 4 };
+        final Monitor monitor = Monitor.of(new GenericNode(array, 1, int.class, 4));
+
+        monitor.sample(0);
+        array[1] = 8;
+        monitor.sample(1_000_000_000L);
+        assertEquals(4, monitor.getRate(), 1e-9);
+    }
+
+    @Test
+    public void size() {
+        final ArrayList<Object> list = new ArrayList<Object>();
+        final Monitor monitor = Monitor.of(node(list));
+
+        monitor.sample(0);
+        assertTrue(Double.isNaN(monitor.getRate()));
+        assertEquals("", Monitor.rateText(monitor.getRate()));
+
+        list.add("a");
+        list.add("b");
+        monitor.sample(2_000_000_000L);
+        assertEquals(1, monitor.getRate(), 1e-9);
+
+        final HashMap<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, 1);
+        final Monitor mapMonitor = Monitor.of(node(map));
+        mapMonitor.sample(0);
+        assertEquals(1, mapMonitor.getLast(), 0);
+
+        assertNull(Monitor.of(node(new Object())));
+    }
+
+    @Test
+    public void ring() throws Exception {
+        final Counter counter = new Counter();
+        final Monitor monitor = Monitor.of(field(counter, "count"));
+
+        for (int i = 0; i < Monitor.Capacity * 2; i++) {
+            counter.count = i;
+            monitor.sample(i * 1_000_000_000L);
+        }
+        assertEquals(Monitor.Capacity, monitor.getCount());
+        assertEquals(Monitor.Capacity, monitor.getSparkline().length());
+        assertEquals(Monitor.Capacity * 2 - 1, monitor.getLast(), 0);
+        assertEquals(1, monitor.getRate(), 1e-9);
+
+        // a constant value keeps the lowest bar
+        final Monitor constant = Monitor.of(node(new ArrayList<Object>()));
+        constant.sample(0);
+        constant.sample(1);
+        assertEquals("▁▁", constant.getSparkline());
+    }
+
+    @Test
+    public void keys() throws Exception {
+        final Counter counter = new Counter();
+        final Monitor monitor = Monitor.of(field(counter, "count"));
+
+        assertEquals(monitor.key, Monitor.keyOf(field(counter, "count")));
+        assertNotEquals(monitor.key, Monitor.keyOf(field(new Counter(), "count")));
+        assertNotEquals(monitor.key, Monitor.keyOf(field(counter, "boxed")));
+        assertNull(Monitor.keyOf(field(counter, "flag")));
+    }
+
+    @Test
+    public void collected() {
+        Monitor monitor = Monitor.of(node(new ArrayList<Object>()));
+
+        for (int i = 0; i < 10 && !monitor.isCollected(); i++) {
+            System.gc();
+        }
+        assertTrue(monitor.isCollected());
+        assertFalse(monitor.sample());
+    }
+
+    private static int monitorThreads() {
+        int count = 0;
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("ObjectEditor monitor")) count += 1;
+        }
+        return count;
+    }
+
+    @Test
+    public void monitors() throws Exception {
+        final ArrayList<Object> list = new ArrayList<Object>();
+        final GenericNode node = node(list);
+
+        final Monitors monitors = new Monitors();
+        final Monitor[] monitor = new Monitor[1];
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                assertNull(monitors.get(node));
+                monitor[0] = monitors.start(node);
+                assertSame(monitor[0], monitors.start(node));
+                assertSame(monitor[0], monitors.get(node(list)));
+            }
+        });
+
+        final long end = System.currentTimeMillis() + 10 * Monitors.Period;
+        while (monitor[0].getCount() < 2 && System.currentTimeMillis() < end) {
+            Thread.sleep(Monitors.Period / 5);
+        }
+        assertTrue(monitor[0].getCount() >= 2);
+
+        // a second session samples on the same thread
+        final Monitors others = new Monitors();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                others.start(node(new ArrayList<Object>(list)));
+            }
+        });
+        assertEquals(1, monitorThreads());
+
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                monitors.stop(monitor[0]);
+                assertNull(monitors.get(node));
+                assertEquals(0, monitors.size());
+            }
+        });
+    }
+
+    @Test(timeout = 30000)
+    public void blockedSize() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // a size call blocked as by a lock held by the application
+        final ArrayList<Object> list = new ArrayList<Object>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public int size() {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    // released
+                }
+                return super.size();
+            }
+        };
+        final Monitor monitor = Monitor.of(node(list));
+
+        final Thread sampler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                monitor.sample(0);
+            }
+        });
+        sampler.start();
+        entered.await();
+
+        // the renderer is not blocked
+        assertEquals("", monitor.getSparkline());
+        assertEquals(0, monitor.getCount());
+
+        release.countDown();
+        sampler.join();
+        assertEquals(1, monitor.getCount());
+    }
+
+}
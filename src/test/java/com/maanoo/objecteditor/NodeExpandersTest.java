@@ -0,0 +1,175 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.EntryNode;
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+import com.maanoo.objecteditor.ObjectEditorWindow.Generator;
+import com.maanoo.objecteditor.Session.Option;
+
+
+public class NodeExpandersTest {
+
+    static class Key {}
+
+    @SuppressWarnings("serial")
+    static class CustomList extends ArrayList<Object> {
+
+        @Override
+        public Iterator<Object> iterator() {
+            throw new AssertionError("user code called");
+        }
+    }
+
+    /**
+     * @return a session showing no methods
+     */
+    private static Session session() {
+        final Session session = new Session();
+        session.options.remove(Option.ShowMethodsVoid);
+        session.options.remove(Option.ShowMethodsNonVoid);
+        return session;
+    }
+
+    private static GenericNode generate(Session session, Object object) {
+        final GenericNode node = new GenericNode(null, 0, object.getClass(), object);
+        new Generator(session).generateNodes(node);
+        return node;
+    }
+
+    private static GenericNode child(GenericNode node, int index) {
+        return (GenericNode) node.getChildAt(index);
+    }
+
+    /**
+     * @return the name of the entry or null if the node is a field or an element
+     */
+    private static String name(GenericNode node) {
+        return node instanceof EntryNode ? ((EntryNode) node).name : null;
+    }
+
+    private static String name(GenericNode node, int index) {
+        return name(child(node, index));
+    }
+
+    @Test
+    public void map() {
+        final Key key = new Key();
+        final Object value = new Object();
+
+        final LinkedHashMap<Object, Object> map = new LinkedHashMap<Object, Object>();
+        map.put("a", 1);
+        map.put(key, value);
+
+        final GenericNode node = generate(session(), map);
+
+        assertEquals(3, node.getChildCount());
+        assertEquals("[a]", name(node, 0));
+        assertEquals(1, child(node, 0).getObject());
+        assertEquals("[1] key", name(node, 1));
+        assertSame(key, child(node, 1).getObject());
+        assertEquals("[1] value", name(node, 2));
+        assertSame(value, child(node, 2).getObject());
+
+        // the entries are not editable
+        assertNull(child(node, 0).field);
+        assertEquals(-1, child(node, 0).index);
+    }
+
+    @Test
+    public void collection() {
+        final GenericNode node = generate(session(), new ArrayList<Object>(Arrays.asList("a", "b")));
+
+        assertEquals(2, node.getChildCount());
+        assertEquals("[1]", name(node, 1));
+        assertEquals("b", child(node, 1).getObject());
+        assertEquals(String.class, child(node, 1).clas);
+    }
+
+    @Test
+    public void pages() {
+        final HashMap<Integer, Integer> map = new HashMap<Integer, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+
+        final Session session = session();
+
+        GenericNode node = generate(session, map);
+        assertEquals(Session.PageSize + 1, node.getChildCount());
+        assertEquals("more", node.getChildAt(Session.PageSize).toString());
+
+        session.showMorePage(map);
+        node = generate(session, map);
+        assertEquals(2 * Session.PageSize + 1, node.getChildCount());
+    }
+
+    @Test
+    public void atomics() {
+        final Object value = new Object();
+
+        GenericNode node = generate(session(), new AtomicReference<Object>(value));
+        assertEquals(1, node.getChildCount());
+        assertEquals("value", name(node, 0));
+        assertSame(value, child(node, 0).getObject());
+
+        node = generate(session(), new AtomicIntegerArray(new int[] { 4, 5 }));
+        assertEquals(2, node.getChildCount());
+        assertEquals(int.class, child(node, 1).clas);
+        assertEquals(5, child(node, 1).getObject());
+    }
+
+    @Test
+    public void threadLocal() {
+        final ThreadLocal<Object> local = new ThreadLocal<Object>();
+        final Object value = new Object();
+        local.set(value);
+
+        final GenericNode node = generate(session(), local);
+
+        GenericNode found = null;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (child(node, i).getObject() == value) found = child(node, i);
+        }
+        assertNotNull(found);
+        assertEquals(Thread.currentThread().getName(), name(found));
+    }
+
+    @Test
+    public void internals() {
+        final ArrayList<Object> list = new ArrayList<Object>(Arrays.asList("a", "b"));
+
+        final Session session = session();
+        session.options.add(Option.ShowCollectionInternals);
+
+        final GenericNode node = generate(session, list);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            assertNull(name(node, i));
+        }
+    }
+
+    @Test
+    public void userIteration() {
+        final CustomList list = new CustomList();
+        list.add("a");
+
+        assertNull(NodeExpanders.of(CustomList.class));
+
+        // with the methods, whose nodes do not hash their holder
+        final GenericNode node = generate(new Session(), list);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (node.getChildAt(i) instanceof GenericNode) assertNull(name(node, i));
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+
+public class PreviewerTest {
+
+    private static volatile boolean stuck;
+
+    /** Ignores the interrupts until released. */
+    private static final Callable<String> Stuck = new Callable<String>() {
+        @Override
+        public String call() {
+            while (stuck) {
+                Thread.interrupted();
+            }
+            return "released";
+        }
+    };
+
+    private static String get(final Previewer previewer, final Object key, final Callable<String> task,
+            final CountDownLatch ready) throws Exception {
+        final String[] text = new String[1];
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                text[0] = previewer.get(key, task, new Runnable() {
+                    @Override
+                    public void run() {
+                        ready.countDown();
+                    }
+                });
+            }
+        });
+        return text[0];
+    }
+
+    @Test
+    public void abandoned() throws Exception {
+        final Previewer previewer = new Previewer("PreviewerTest", 1, 100);
+
+        stuck = true;
+        try {
+            final CountDownLatch timedOut = new CountDownLatch(2);
+            assertEquals(Previewer.Pending, get(previewer, "a", Stuck, timedOut));
+            assertEquals(Previewer.Pending, get(previewer, "b", Stuck, timedOut));
+            assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+            assertEquals(Previewer.TimedOut, get(previewer, "a", Stuck, timedOut));
+
+            // the single thread is stuck twice over, yet a new preview is computed
+            final CountDownLatch computed = new CountDownLatch(1);
+            get(previewer, "c", new Callable<String>() {
+                @Override
+                public String call() {
+                    return "text";
+                }
+            }, computed);
+            assertTrue(computed.await(5, TimeUnit.SECONDS));
+            assertEquals("text", get(previewer, "c", null, computed));
+
+        } finally {
+            stuck = false;
+        }
+    }
+
+    private static int timeoutThreads() {
+        int count = 0;
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("ObjectEditor preview timeouts")) count += 1;
+        }
+        return count;
+    }
+
+    @Test(timeout = 30000)
+    public void timeouts() throws Exception {
+        final Previewer first = new Previewer("PreviewerTest", 1, 60000);
+        final Previewer second = new Previewer("PreviewerTest", 1, 60000);
+
+        final CountDownLatch ready = new CountDownLatch(2);
+        final Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() {
+                return "text";
+            }
+        };
+        get(first, "a", task, ready);
+        get(second, "a", task, ready);
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+
+        // one thread for all the previewers, the time limits of the finished computations are dropped
+        assertEquals(1, timeoutThreads());
+        assertEquals(0, Previewer.timeouts().getQueue().size());
+    }
+
+}
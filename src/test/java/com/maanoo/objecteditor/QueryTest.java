@@ -0,0 +1,107 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class QueryTest {
+
+    @SuppressWarnings("unused")
+    private static class Connection {
+
+        private final String name;
+        private final boolean open;
+        private final int port;
+
+        public Connection(String name, boolean open, int port) {
+            this.name = name;
+            this.open = open;
+            this.port = port;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Server {
+
+        private final Connection[] connections = {
+                new Connection("a", true, 80),
+                new Connection("b", false, 443),
+                null,
+                new Connection("c", false, 8080),
+        };
+    }
+
+    private static List<String> evaluate(String text, Object root) throws ParseException {
+        final ArrayList<String> found = new ArrayList<String>();
+
+        Query.compile(text).evaluate(root, new Query.Sink() {
+            @Override
+            public boolean found(ObjectPath path) {
+                found.add(path.toString());
+                return true;
+            }
+        });
+        return found;
+    }
+
+    @Test
+    public void fieldsAndIndices() throws Exception {
+
+        final Server server = new Server();
+
+        assertEquals(list("connections"), evaluate("connections", server));
+        assertEquals(list("connections[1].name"), evaluate("connections[1].name", server));
+        assertEquals(list(), evaluate("connections[9]", server));
+        assertEquals(list(), evaluate("missing", server));
+    }
+
+    @Test
+    public void wildcards() throws Exception {
+
+        final Server server = new Server();
+
+        assertEquals(list("connections[0].port", "connections[1].port", "connections[3].port"),
+                evaluate("connections[*].port", server));
+        assertEquals(list("connections[0].name", "connections[0].open", "connections[0].port"),
+                evaluate("connections[0].*", server));
+    }
+
+    @Test
+    public void predicates() throws Exception {
+
+        final Server server = new Server();
+
+        assertEquals(list("connections[1]", "connections[3]"), evaluate("connections[?open==false]", server));
+        assertEquals(list("connections[3]"), evaluate("connections[?port > 1000]", server));
+        assertEquals(list("connections[1].port"), evaluate("connections[?name=='b'].port", server));
+    }
+
+    @Test
+    public void hashMap() throws Exception {
+
+        final HashMap<String, String> map = new HashMap<String, String>();
+        map.put("key", "value");
+
+        assertEquals(1, evaluate("table[*][?key=='key'].value", map).size());
+    }
+
+    @Test(expected = ParseException.class)
+    public void invalid() throws Exception {
+        Query.compile("connections[?open]");
+    }
+
+    private static List<String> list(String... items) {
+        final ArrayList<String> list = new ArrayList<String>();
+        for (final String i : items) {
+            list.add(i);
+        }
+        return list;
+    }
+
+}
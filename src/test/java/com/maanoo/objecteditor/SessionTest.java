@@ -0,0 +1,142 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+import com.maanoo.objecteditor.ObjectEditorWindow.Node;
+
+
+public class SessionTest {
+
+    static class Holder {
+
+        Object value;
+    }
+
+    private static GenericNode node(Object object) {
+        return new GenericNode(null, -1, object.getClass(), object);
+    }
+
+    @Test
+    public void traversals() {
+        final Session session = new Session();
+        final Holder root = new Holder();
+        final Holder child = new Holder();
+
+        final GenericNode rootNode = node(root);
+        final GenericNode childNode = node(child);
+        final IdentityMap<Node> index = new IdentityMap<Node>();
+        index.put(root, rootNode);
+        index.put(child, childNode);
+
+        session.windowOpened(root);
+        session.putTraversal(root, rootNode, index);
+        assertSame(rootNode, session.getTraversal(root).root);
+
+        // the nodes of a traversal are shared with the windows of the objects under the root
+        assertSame(rootNode, session.findNode(root));
+        assertSame(childNode, session.findNode(child));
+        assertNull(session.findNode(new Holder()));
+
+        // kept for the window that refreshes in place only
+        session.invalidateExcept(root);
+        assertSame(rootNode, session.getTraversal(root).root);
+
+        session.invalidate();
+        assertNull(session.getTraversal(root));
+        assertNull(session.findNode(child));
+    }
+
+    @Test
+    public void windowClosed() {
+        final Session session = new Session();
+        final Holder root = new Holder();
+
+        session.windowOpened(root);
+        session.windowOpened(root);
+        session.putTraversal(root, node(root), new IdentityMap<Node>());
+        assertSame(root, session.getRoot());
+
+        // released with the last window of the root only
+        session.windowClosed(root);
+        assertNotNull(session.getTraversal(root));
+        session.windowClosed(root);
+        assertNull(session.getTraversal(root));
+        assertEquals(0, session.getEstimate(root));
+    }
+
+    @Test(timeout = 30000)
+    public void typeIndex() throws Exception {
+        final Session session = new Session();
+        final Holder root = new Holder();
+        final Holder replaced = new Holder();
+        root.value = replaced;
+        session.windowOpened(root);
+
+        final TypeIndex index = session.getTypeIndex(root);
+        assertSame(index, session.getTypeIndex(root));
+        assertEquals(2, index.getInstances(Holder.class).size());
+
+        // a new value is added to the index as is
+        final Holder added = new Holder();
+        replaced.value = added;
+        session.index(added);
+        assertEquals(3, index.getInstances(Holder.class).size());
+
+        // no longer reachable after an edit, listed until built again in the background
+        root.value = "text";
+        session.invalidate();
+        assertSame(index, session.getTypeIndex(root));
+
+        TypeIndex rebuilt = index;
+        while (rebuilt == index) {
+            Thread.sleep(10);
+            final TypeIndex[] current = new TypeIndex[1];
+            SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run() {
+                    current[0] = session.getTypeIndex(root);
+                }
+            });
+            rebuilt = current[0];
+        }
+        assertEquals(Collections.<Object> singletonList(root), rebuilt.getInstances(Holder.class));
+    }
+
+    @Test
+    public void nodeRefreshed() {
+        final Session session = new Session();
+        final GenericNode node = node(new Holder());
+
+        final ArrayList<Node> refreshed = new ArrayList<Node>();
+        final Session.Listener listener = new Session.Listener() {
+            @Override
+            public void nodeRefreshed(Node node) {
+                refreshed.add(node);
+            }
+
+            @Override
+            public void nodesRemoved(Node node, int[] indices, Node[] children) {}
+        };
+
+        // every window is notified, as any may show the shared node
+        session.addListener(listener);
+        session.addListener(listener);
+        session.nodeRefreshed(node);
+        assertEquals(Arrays.<Node> asList(node, node), refreshed);
+
+        session.removeListener(listener);
+        session.removeListener(listener);
+        session.nodeRefreshed(node);
+        assertEquals(2, refreshed.size());
+    }
+
+}
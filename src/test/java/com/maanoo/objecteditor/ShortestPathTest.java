@@ -0,0 +1,64 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+
+public class ShortestPathTest {
+
+    @SuppressWarnings("unused")
+    private static class Holder {
+
+        private final Object first;
+        private final Object second;
+
+        public Holder(Object first, Object second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private static Holder chain(int length, Object last) {
+        Holder holder = new Holder(null, last);
+        for (int i = 1; i < length; i++) {
+            holder = new Holder(holder, null);
+        }
+        return holder;
+    }
+
+    @Test
+    public void shortest() {
+        final Object target = new Object();
+
+        // a long chain through the first field, a short one through the second
+        final Holder root = new Holder(chain(100, target), new Object[] { null, new Holder(null, target) });
+
+        final ObjectPath path = new ShortestPath(root, target).find();
+
+        assertNotNull(path);
+        assertSame(target, path.object);
+        assertEquals("second[1].second", path.toString());
+    }
+
+    @Test
+    public void notReachable() {
+        final ArrayList<Object> root = new ArrayList<Object>();
+        root.add(new Object());
+
+        assertNull(new ShortestPath(root, new Object()).find());
+        assertEquals(0, new ShortestPath(root, root).find().getDepth());
+    }
+
+    @Test
+    public void limited() {
+        final Object target = new Object();
+        final Holder root = chain(1000, target);
+
+        assertNull(new ShortestPath(root, target, 100).find());
+        assertEquals(1000, new ShortestPath(root, target).find().getDepth());
+    }
+
+}
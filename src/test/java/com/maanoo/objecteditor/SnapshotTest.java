@@ -0,0 +1,73 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Test;
+
+
+public class SnapshotTest {
+
+    static class Holder {
+        int count = 1;
+        Holder next;
+        int[] values = { 1, 2 };
+        Object[] items = { "a", null };
+    }
+
+    private static Snapshot capture(Object root, Snapshot previous) {
+        return Snapshot.capture(new Object[] { root }, previous, null, Snapshot.DefaultMaxObjects);
+    }
+
+    @Test
+    public void copies() {
+        final Holder root = new Holder();
+        root.next = new Holder();
+
+        final Snapshot snapshot = capture(root, null);
+
+        // the holders and their arrays
+        assertEquals(6, snapshot.size());
+        assertTrue(snapshot.contains(root.next.values));
+        assertFalse(snapshot.contains("a"));
+
+        root.count = 2;
+        root.values[0] = 3;
+        root.next = null;
+
+        final Object[] values = snapshot.getValues(root);
+        assertEquals(1, values[0]);
+        assertNotNull(values[1]);
+        assertEquals(1, ((int[]) snapshot.getArray(root.values))[0]);
+        assertNull(snapshot.getValues(root.values));
+    }
+
+    @Test
+    public void shared() {
+        final Holder root = new Holder();
+        root.next = new Holder();
+
+        final Snapshot first = capture(root, null);
+        root.next.count = 2;
+        final Snapshot second = capture(root, first);
+
+        // all but the changed holder
+        assertEquals(5, second.getShared());
+        assertSame(first.getValues(root), second.getValues(root));
+        assertNotSame(first.getValues(root.next), second.getValues(root.next));
+        assertEquals(2, second.getValues(root.next)[0]);
+    }
+
+    @Test
+    public void limited() {
+        final Holder root = new Holder();
+        root.next = new Holder();
+
+        final Snapshot snapshot = Snapshot.capture(new Object[] { root }, null, new ReentrantLock(), 2);
+
+        assertTrue(snapshot.isLimited());
+        assertEquals(2, snapshot.size());
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class StateFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void reset() {
+        StateFile.setDirectory(null);
+    }
+
+    private StateFile open() throws IOException {
+        StateFile.setDirectory(folder.getRoot());
+        return StateFile.of(this);
+    }
+
+    @Test
+    public void disabled() {
+        assertNull(StateFile.of(this));
+    }
+
+    @Test
+    public void records() throws IOException {
+        StateFile file = open();
+        StateFile.State state = file.open();
+        assertNull(state.options);
+        assertTrue(state.expanded.isEmpty());
+
+        file.append(StateFile.Options, "A,B");
+        file.append(StateFile.Filter, "text");
+        file.append(StateFile.Expanded, "");
+        file.append(StateFile.Expanded, "/a");
+        file.append(StateFile.Expanded, "/a/b");
+        file.append(StateFile.Expanded, "/ab");
+        file.append(StateFile.Return, "/size()");
+        file.append(StateFile.Collapsed, "/a");
+        file.append(StateFile.Expanded, "/c");
+        file.append(StateFile.Filter, "");
+        file.close();
+
+        for (int i = 0; i < 2; i++) {
+            file = open();
+            state = file.open();
+            file.close();
+
+            assertEquals("A,B", state.options);
+            assertEquals("", state.filter);
+            assertEquals(Arrays.asList("", "/ab", "/c"), Arrays.asList(state.expanded.toArray()));
+            assertEquals(Arrays.asList("/size()"), Arrays.asList(state.returns.toArray()));
+        }
+    }
+
+    @Test
+    public void partialRecord() throws IOException {
+        StateFile file = open();
+        file.open();
+        file.append(StateFile.Expanded, "/a");
+        file.append(StateFile.Expanded, "/b");
+        file.close();
+
+        final File path = new File(folder.getRoot(), getClass().getName() + ".state");
+        final RandomAccessFile raf = new RandomAccessFile(path, "rw");
+        raf.setLength(raf.length() - 1);
+        raf.close();
+
+        file = open();
+        final StateFile.State state = file.open();
+        file.close();
+
+        assertEquals(Arrays.asList("/a"), Arrays.asList(state.expanded.toArray()));
+    }
+
+}
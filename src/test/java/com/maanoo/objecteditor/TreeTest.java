@@ -0,0 +1,111 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
+import javax.swing.tree.TreePath;
+
+import org.junit.Test;
+
+
+public class TreeTest {
+
+    static class TestNode extends Tree.Node {
+
+        @Override
+        public String toString() {
+            return "node";
+        }
+    }
+
+    /**
+     * @return a node with the given number of children on each level
+     */
+    private static TestNode node(int... counts) {
+        final TestNode node = new TestNode();
+        addChildren(node, counts, 0);
+        return node;
+    }
+
+    private static void addChildren(TestNode node, int[] counts, int level) {
+        if (level == counts.length) return;
+
+        for (int i = 0; i < counts[level]; i++) {
+            final TestNode child = new TestNode();
+            addChildren(child, counts, level + 1);
+            node.add(child);
+        }
+    }
+
+    private static Tree<TestNode> tree(TestNode root) {
+        final Tree<TestNode> tree = new Tree<TestNode>(root, null);
+        tree.setRootVisible(true);
+        return tree;
+    }
+
+    @Test
+    public void collapsedPaths() {
+        final Tree<TestNode> tree = tree(node(10, 10, 10));
+        final TreePath root = tree.getPathForRow(0);
+
+        // the root is expanded by the tree
+        assertEquals(10 + 100, tree.getCollapsedPaths(root, Integer.MAX_VALUE, Integer.MAX_VALUE).size());
+        assertEquals(0, tree.getCollapsedPaths(root, 1, Integer.MAX_VALUE).size());
+        assertEquals(10, tree.getCollapsedPaths(root, 2, Integer.MAX_VALUE).size());
+
+        // breadth first, the second level and one more path fit
+        assertEquals(10 + 1, tree.getCollapsedPaths(root, Integer.MAX_VALUE, 115).size());
+        assertEquals(0, tree.getCollapsedPaths(root, Integer.MAX_VALUE, 5).size());
+    }
+
+    @Test(timeout = 60000)
+    public void expandPaths() {
+        final Tree<TestNode> tree = tree(node(50, 1000));
+
+        final int[] events = new int[1];
+        tree.addTreeExpansionListener(new TreeExpansionListener() {
+            @Override
+            public void treeExpanded(TreeExpansionEvent event) {
+                events[0] += 1;
+            }
+
+            @Override
+            public void treeCollapsed(TreeExpansionEvent event) {}
+        });
+
+        final List<TreePath> paths = tree.getCollapsedPaths(tree.getPathForRow(0), Integer.MAX_VALUE,
+                Integer.MAX_VALUE);
+        assertEquals(50, paths.size());
+
+        tree.expandPaths(paths);
+
+        assertEquals(1, events[0]);
+        assertEquals(1 + 50 + 50 * 1000, tree.getRowCount());
+        for (final TreePath path : paths) {
+            assertTrue(tree.isExpanded(path));
+        }
+        assertTrue(tree.getCollapsedPaths(tree.getPathForRow(0), Integer.MAX_VALUE, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void nodesRemoved() {
+        final TestNode root = node(3, 2);
+        final Tree<TestNode> tree = tree(root);
+        tree.expandRow(3);
+        assertEquals(1 + 3 + 2, tree.getRowCount());
+
+        // the first child is removed and the last one, expanded, moves up
+        final Tree.Node removed = root.getChildAt(0);
+        root.setChildAt(0, root.getChildAt(1));
+        root.setChildAt(1, root.getChildAt(2));
+        root.setChildCount(2);
+        tree.getModel().nodesRemoved(tree.getPathForRow(0), new int[] { 0 }, new Object[] { removed });
+
+        assertEquals(1 + 2 + 2, tree.getRowCount());
+        assertTrue(tree.isExpanded(2));
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+
+public class TypeIndexTest {
+
+    static class Animal {
+
+        Animal friend;
+        final String name;
+
+        Animal(String name) {
+            this.name = name;
+        }
+    }
+
+    static class Cat extends Animal {
+
+        Cat(String name) {
+            super(name);
+        }
+    }
+
+    static class Dog extends Animal {
+
+        Dog(String name) {
+            super(name);
+        }
+    }
+
+    @Test
+    public void lookup() {
+        final Cat cat = new Cat("cat");
+        final Dog dog = new Dog("dog");
+        cat.friend = dog;
+        dog.friend = cat;
+
+        final TypeIndex index = new TypeIndex();
+        index.add(new Animal[] { cat, dog, cat });
+
+        assertEquals(Arrays.<Class<?>> asList(Cat.class, Dog.class), index.getClasses(Animal.class));
+        assertEquals(Collections.singletonList(Dog.class), index.getClasses(Dog.class));
+        assertTrue(index.getClasses(Number.class).isEmpty());
+
+        // each instance once, even if met again through a cycle
+        assertEquals(Collections.singletonList(cat), index.getInstances(Cat.class));
+        assertEquals(Collections.singletonList(dog), index.getInstances(Dog.class));
+        assertTrue(index.getInstances(Animal.class).isEmpty());
+    }
+
+    @Test
+    public void add() {
+        final Cat cat = new Cat("cat");
+
+        final TypeIndex index = new TypeIndex();
+        index.add(cat);
+        final int size = index.size();
+
+        // indexed objects are not walked again, new ones are
+        index.add(cat);
+        assertEquals(size, index.size());
+
+        final Dog dog = new Dog("dog");
+        dog.friend = cat;
+        index.add(dog);
+        assertEquals(Collections.singletonList(dog), index.getInstances(Dog.class));
+        assertEquals(Collections.singletonList(cat), index.getInstances(Cat.class));
+
+        index.add(null);
+    }
+
+    @Test(timeout = 30000)
+    public void weak() throws Exception {
+        final TypeIndex index = new TypeIndex(true);
+        Cat cat = new Cat("cat");
+        final Dog dog = new Dog("dog");
+        index.add(new Animal[] { cat, dog });
+
+        assertEquals(Collections.singletonList(cat), index.getInstances(Cat.class));
+
+        // not kept alive, dropped once collected
+        final WeakReference<Cat> probe = new WeakReference<Cat>(cat);
+        cat = null;
+        for (int i = 0; i < 50 && probe.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(probe.get());
+
+        assertTrue(index.getInstances(Cat.class).isEmpty());
+        assertEquals(Collections.singletonList(dog), index.getInstances(Dog.class));
+
+        index.pruneCollected();
+        assertEquals(Collections.singletonList(Dog.class), index.getClasses(Animal.class));
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.maanoo.objecteditor;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import com.maanoo.objecteditor.ObjectEditorWindow.GenericNode;
+import com.maanoo.objecteditor.ObjectEditorWindow.Generator;
+import com.maanoo.objecteditor.Session.Option;
+
+
+public class WeakObjectsTest {
+
+    static class Holder {
+        Object value;
+        int number = 42;
+    }
+
+    /**
+     * @return whether the reference was cleared after a few collections
+     */
+    private static boolean collect(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return reference.get() == null;
+    }
+
+    @Test(timeout = 30000)
+    public void wrap() throws Exception {
+        final WeakObjects objects = new WeakObjects();
+        assertNull(objects.wrap(null));
+        assertNull(WeakObjects.get(null));
+        assertFalse(WeakObjects.isCollected(null));
+
+        Object object = new Object();
+        final Object reference = objects.wrap(object);
+        assertSame(object, WeakObjects.get(reference));
+        assertFalse(WeakObjects.isCollected(reference));
+
+        final WeakReference<Object> probe = new WeakReference<Object>(object);
+        object = null;
+        assertTrue(collect(probe));
+
+        assertNull(WeakObjects.get(reference));
+        assertTrue(WeakObjects.isCollected(reference));
+    }
+
+    @Test(timeout = 30000)
+    public void listener() throws Exception {
+        final WeakObjects objects = new WeakObjects();
+
+        final int[] notified = new int[1];
+        objects.addListener(new WeakObjects.Listener() {
+            @Override
+            public void collected() {
+                assertTrue(SwingUtilities.isEventDispatchThread());
+                notified[0] += 1;
+            }
+        });
+
+        Object object = new Object();
+        // the references are held by the nodes
+        final Object[] references = { objects.wrap(object), objects.wrap(object) };
+
+        final WeakReference<Object> probe = new WeakReference<Object>(object);
+        object = null;
+        assertTrue(collect(probe));
+
+        while (true) {
+            final int[] count = new int[1];
+            SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run() {
+                    count[0] = notified[0];
+                }
+            });
+            if (count[0] != 0) break;
+            Thread.sleep(10);
+        }
+        assertTrue(WeakObjects.isCollected(references[0]));
+    }
+
+    @Test(timeout = 30000)
+    public void weakNodes() throws Exception {
+        final Holder holder = new Holder();
+        holder.value = new Object();
+
+        final Session session = new Session();
+        session.options.add(Option.WeakReferences);
+
+        final GenericNode root = new GenericNode(null, 0, Holder.class, holder);
+        new Generator(session).generateNodes(root);
+
+        GenericNode value = null, number = null;
+        for (int i = 0; i < root.getChildCount(); i++) {
+            final GenericNode child = (GenericNode) root.getChildAt(i);
+            if (child.field.getName().equals("value")) value = child;
+            if (child.field.getName().equals("number")) number = child;
+        }
+        assertNotNull(value);
+        assertNotNull(number);
+
+        // the root is held by the window
+        assertFalse(root.isWeak());
+        assertTrue(value.isWeak());
+        assertSame(holder, value.getHolder());
+        assertSame(holder.value, value.getObject());
+        assertFalse(value.isCollected());
+
+        final WeakReference<Object> probe = new WeakReference<Object>(holder.value);
+        holder.value = null;
+        assertTrue(collect(probe));
+
+        assertTrue(value.isCollected());
+        assertNull(value.getObject());
+
+        // the values of primitive types are held by the node
+        assertFalse(number.isCollected());
+        assertEquals(42, number.getObject());
+    }
+
+    @Test(timeout = 30000)
+    public void weakKey() throws Exception {
+        Object object = new Object();
+        final IdentityKey key = IdentityKey.weak(object, "a");
+
+        assertEquals(new IdentityKey(object, "a"), key);
+        assertEquals(key, IdentityKey.weak(object, "a"));
+        assertNotEquals(key, IdentityKey.weak(object, "b"));
+
+        final WeakReference<Object> probe = new WeakReference<Object>(object);
+        object = null;
+        assertTrue(collect(probe));
+
+        assertNull(key.getObject());
+        assertEquals(key, key);
+        assertNotEquals(key, new IdentityKey(null, "a"));
+    }
+
+}